@@ -0,0 +1,110 @@
+package edu.moravian.csci299.mocalendar;
+
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks with EXPLAIN QUERY PLAN that the range queries of CalendarDao search the indices with
+ * both a lower and an upper bound instead of scanning the event table.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CalendarDaoQueryPlanTest {
+    // the bounded search of the events that do not repeat
+    private static final String BOUNDED = "index_Event_recurrence_startTime (recurrence=? AND startTime>? AND startTime<?)";
+    // the search of the events that repeat
+    private static final String REPEATING = "index_Event_recurrence_startTime (recurrence>?)";
+
+    private AppDatabase database;
+
+    @Before
+    public void setUp() {
+        database = Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(), AppDatabase.class)
+                .addCallback(AppDatabase.CREATE_EVENT_BOUNDS)
+                .build();
+    }
+
+    @After
+    public void tearDown() { database.close(); }
+
+    /**
+     * @return the details of each step of the query plan of a query, with its parameters unbound
+     */
+    private List<String> plan(String sql) {
+        List<String> details = new ArrayList<>();
+        try (Cursor cursor = database.getOpenHelper().getReadableDatabase().query("EXPLAIN QUERY PLAN " + sql)) {
+            int detail = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) { details.add(cursor.getString(detail)); }
+        }
+        return details;
+    }
+
+    /**
+     * Check that a plan never scans the event table (event_bounds only has one row).
+     */
+    private static void assertNoScan(List<String> plan) {
+        for (String detail : plan) {
+            assertFalse(plan.toString(), detail.matches("SCAN (TABLE )?event\\b(?!_).*"));
+        }
+    }
+
+    /**
+     * Check that some step of a plan contains the given text.
+     */
+    private static void assertUses(List<String> plan, String text) {
+        boolean found = false;
+        for (String detail : plan) { found |= detail.contains(text); }
+        assertTrue(plan.toString(), found);
+    }
+
+    @Test
+    public void eventsBetweenUsesBoundedSearches() {
+        List<String> plan = plan(CalendarDao.EVENTS_BETWEEN);
+        assertNoScan(plan);
+        assertUses(plan, BOUNDED);
+        assertUses(plan, REPEATING);
+    }
+
+    @Test
+    public void eventsOfTypeBetweenUsesBoundedSearches() {
+        List<String> plan = plan(CalendarDao.EVENTS_OF_TYPE_BETWEEN);
+        assertNoScan(plan);
+        assertUses(plan, BOUNDED);
+        assertUses(plan, REPEATING);
+    }
+
+    @Test
+    public void eventsStartingBetweenUsesBoundedSearches() {
+        List<String> plan = plan(CalendarDao.EVENTS_STARTING_BETWEEN);
+        assertNoScan(plan);
+        assertUses(plan, BOUNDED);
+        assertUses(plan, REPEATING);
+    }
+
+    @Test
+    public void eventSummariesBetweenUsesBoundedSearch() {
+        List<String> plan = plan(CalendarDao.EVENT_SUMMARIES_BETWEEN);
+        assertNoScan(plan);
+        assertUses(plan, BOUNDED);
+    }
+
+    @Test
+    public void repeatingEventsBetweenOnlySearchesRepeatingEvents() {
+        List<String> plan = plan(CalendarDao.REPEATING_EVENTS_BETWEEN);
+        assertNoScan(plan);
+        assertUses(plan, REPEATING);
+    }
+}
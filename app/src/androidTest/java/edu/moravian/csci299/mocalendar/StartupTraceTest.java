@@ -0,0 +1,71 @@
+package edu.moravian.csci299.mocalendar;
+
+import android.os.Build;
+import android.os.SystemClock;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class StartupTraceTest {
+    @Before
+    public void setUp() { StartupTrace.reset(); }
+
+    @After
+    public void tearDown() { StartupTrace.reset(); }
+
+    @Test
+    public void resetForgetsEveryMilestoneButTheTraceLoading() {
+        StartupTrace.record(StartupTrace.Milestone.APPLICATION_CREATED);
+        StartupTrace.record(StartupTrace.Milestone.DATABASE_OPEN);
+        StartupTrace.reset();
+        for (StartupTrace.Milestone milestone : StartupTrace.Milestone.values()) {
+            if (milestone == StartupTrace.Milestone.TRACE_LOADED) {
+                assertTrue(StartupTrace.get(milestone) >= 0);
+            } else {
+                assertEquals(-1, StartupTrace.get(milestone));
+            }
+        }
+    }
+
+    @Test
+    public void onlyTheFirstTimeAMilestoneIsReachedIsRecorded() {
+        StartupTrace.record(StartupTrace.Milestone.DATABASE_OPEN);
+        long first = StartupTrace.get(StartupTrace.Milestone.DATABASE_OPEN);
+        assertTrue(first >= StartupTrace.get(StartupTrace.Milestone.TRACE_LOADED));
+        SystemClock.sleep(20);
+        StartupTrace.record(StartupTrace.Milestone.DATABASE_OPEN);
+        assertEquals(first, StartupTrace.get(StartupTrace.Milestone.DATABASE_OPEN));
+    }
+
+    @Test
+    public void processStartIsOnlyRecordedWhenItIsKnown() {
+        StartupTrace.record(StartupTrace.Milestone.PROCESS_START);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            // the times are measured from the start of the process
+            assertEquals(0, StartupTrace.get(StartupTrace.Milestone.PROCESS_START));
+            assertTrue(StartupTrace.dump().contains("PROCESS_START: 0"));
+        } else {
+            // the times are measured from when the trace was loaded instead
+            assertEquals(-1, StartupTrace.get(StartupTrace.Milestone.PROCESS_START));
+            assertEquals(0, StartupTrace.get(StartupTrace.Milestone.TRACE_LOADED));
+            assertTrue(StartupTrace.dump().contains("process start is unknown"));
+        }
+    }
+
+    @Test
+    public void dumpListsTheMilestonesReached() {
+        StartupTrace.record(StartupTrace.Milestone.FIRST_DAY_LOADED);
+        String dump = StartupTrace.dump();
+        assertTrue(dump, dump.contains("TRACE_LOADED: "));
+        assertTrue(dump, dump.contains("FIRST_DAY_LOADED: "));
+        assertTrue(dump, !dump.contains("FIRST_LIST_RENDERED"));
+    }
+}
@@ -1,15 +1,222 @@
 package edu.moravian.csci299.mocalendar;
 
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
 /**
  * Our connection to the database of events for our app.
+ *
+ * The database uses incremental auto-vacuum when it can, so that the space freed by purging
+ * deleted events can be given back in small steps (see incrementalVacuum()) instead of with a full
+ * VACUUM. A full VACUUM rewrites the whole file and may renumber the rowids of the event table,
+ * which the full-text search index uses to find its events, so one is only run to switch the mode
+ * while there are no events (see ENABLE_INCREMENTAL_VACUUM).
  */
-@Database(entities = {Event.class}, version = 1)
+@Database(entities = {Event.class, EventFts.class, EventBounds.class}, version = 9)
 @TypeConverters(EventTypeConverter.class)
 public abstract class AppDatabase extends RoomDatabase {
     public abstract CalendarDao calendarDao();
-}
 
+    /**
+     * Switches the database to incremental auto-vacuum when it is opened, if it is not already and
+     * it has no events. Otherwise freed pages are still reused by later writes but the file does
+     * not shrink.
+     */
+    public static final Callback ENABLE_INCREMENTAL_VACUUM = new Callback() {
+        @Override
+        public void onOpen(@NonNull SupportSQLiteDatabase db) {
+            if (queryLong(db, "PRAGMA auto_vacuum") == 2 || queryLong(db, "SELECT EXISTS(SELECT 1 FROM event)") != 0) { return; }
+            db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+            db.execSQL("VACUUM");
+        }
+    };
+
+    /**
+     * Sets up the longest duration of events (see EventBounds) when the database is created.
+     */
+    public static final Callback CREATE_EVENT_BOUNDS = new Callback() {
+        @Override
+        public void onCreate(@NonNull SupportSQLiteDatabase db) { createEventBounds(db); }
+    };
+
+    /**
+     * Fill in the row of the event_bounds table from the current events and add the triggers that
+     * grow it as longer events are written. An event with no end time has a NULL duration, which
+     * never counts as longer.
+     */
+    static void createEventBounds(SupportSQLiteDatabase db) {
+        db.execSQL("INSERT OR REPLACE INTO `event_bounds` (`id`, `maxDuration`) VALUES (0, " +
+                "(SELECT COALESCE(MAX(`endTime` - `startTime`), 0) FROM `Event` WHERE `recurrence` IS NULL))");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS event_bounds_AFTER_INSERT AFTER INSERT ON `Event` " +
+                "WHEN NEW.`recurrence` IS NULL AND NEW.`endTime` - NEW.`startTime` > (SELECT `maxDuration` FROM `event_bounds`) " +
+                "BEGIN UPDATE `event_bounds` SET `maxDuration` = NEW.`endTime` - NEW.`startTime`; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS event_bounds_AFTER_UPDATE AFTER UPDATE OF `startTime`, `endTime`, `recurrence` ON `Event` " +
+                "WHEN NEW.`recurrence` IS NULL AND NEW.`endTime` - NEW.`startTime` > (SELECT `maxDuration` FROM `event_bounds`) " +
+                "BEGIN UPDATE `event_bounds` SET `maxDuration` = NEW.`endTime` - NEW.`startTime`; END");
+    }
+
+    /**
+     * Give the pages freed by deleting rows back to the file system. This does nothing unless the
+     * database uses incremental auto-vacuum.
+     * @return the number of pages given back
+     */
+    public int incrementalVacuum() {
+        SupportSQLiteDatabase db = getOpenHelper().getWritableDatabase();
+        long free = queryLong(db, "PRAGMA freelist_count");
+        // each step of the pragma frees one page, so its cursor must be read to the end
+        try (Cursor cursor = db.query("PRAGMA incremental_vacuum")) {
+            while (cursor.moveToNext()) { }
+        }
+        return (int) (free - queryLong(db, "PRAGMA freelist_count"));
+    }
+
+    /**
+     * @return the first column of the first row of a query, or 0 if there is no row
+     */
+    private static long queryLong(SupportSQLiteDatabase db, String sql) {
+        try (Cursor cursor = db.query(sql)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+
+    /**
+     * Version 2 adds the indices on the start and end times of events.
+     */
+    public static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_Event_startTime` ON `Event` (`startTime`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_Event_endTime` ON `Event` (`endTime`)");
+        }
+    };
+
+    /**
+     * Version 3 stores the event ids as 16 bytes instead of 36 characters of text. The table is
+     * rebuilt with a BLOB id column but the existing ids are copied as-is since SQLite cannot
+     * convert them. They are rewritten afterwards in the background in small chunks (see
+     * CalendarDao.rewriteTextEventIds()) so that opening the database is not held up.
+     */
+    public static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `Event_new` (`id` BLOB NOT NULL, `startTime` INTEGER NOT NULL, " +
+                    "`endTime` INTEGER, `name` TEXT NOT NULL, `type` TEXT NOT NULL, `description` TEXT NOT NULL, " +
+                    "PRIMARY KEY(`id`))");
+            db.execSQL("INSERT INTO `Event_new` (`id`, `startTime`, `endTime`, `name`, `type`, `description`) " +
+                    "SELECT `id`, `startTime`, `endTime`, `name`, `type`, `description` FROM `Event`");
+            db.execSQL("DROP TABLE `Event`");
+            db.execSQL("ALTER TABLE `Event_new` RENAME TO `Event`");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_Event_startTime` ON `Event` (`startTime`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_Event_endTime` ON `Event` (`endTime`)");
+        }
+    };
+
+    /**
+     * Version 4 stores the event types as their integer codes instead of their names and adds an
+     * index on the type. The codes are written out here so that this migration does not change if
+     * the types are ever renamed.
+     */
+    public static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `Event_new` (`id` BLOB NOT NULL, `startTime` INTEGER NOT NULL, " +
+                    "`endTime` INTEGER, `name` TEXT NOT NULL, `type` INTEGER NOT NULL, `description` TEXT NOT NULL, " +
+                    "PRIMARY KEY(`id`))");
+            db.execSQL("INSERT INTO `Event_new` (`id`, `startTime`, `endTime`, `name`, `type`, `description`) " +
+                    "SELECT `id`, `startTime`, `endTime`, `name`, CASE `type` " +
+                    "WHEN 'GENERIC' THEN 0 WHEN 'ASSIGNMENT' THEN 1 WHEN 'CLASS' THEN 2 " +
+                    "WHEN 'LAB' THEN 3 WHEN 'EXAM' THEN 4 WHEN 'ESSAY' THEN 5 " +
+                    "WHEN 'PROGRAMMING' THEN 6 WHEN 'READING' THEN 7 WHEN 'CLUB' THEN 8 " +
+                    "WHEN 'OFFICE_HOURS' THEN 9 WHEN 'ATHLETIC_PRACTICE' THEN 10 " +
+                    "WHEN 'MUSIC_PRACTICE' THEN 11 WHEN 'COMPETITION' THEN 12 " +
+                    "WHEN 'PRESENTATION' THEN 13 WHEN 'HOLIDAY' THEN 14 " +
+                    "ELSE 0 END, `description` FROM `Event`");
+            db.execSQL("DROP TABLE `Event`");
+            db.execSQL("ALTER TABLE `Event_new` RENAME TO `Event`");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_Event_startTime` ON `Event` (`startTime`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_Event_endTime` ON `Event` (`endTime`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_Event_type` ON `Event` (`type`)");
+        }
+    };
+
+    /**
+     * Version 5 adds the full-text search index over event names and descriptions along with the
+     * triggers that keep it in sync with the event table, then builds the index from the existing
+     * events.
+     */
+    public static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `event_fts` USING FTS4(" +
+                    "`name` TEXT NOT NULL, `description` TEXT NOT NULL, content=`Event`)");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_event_fts_BEFORE_UPDATE " +
+                    "BEFORE UPDATE ON `Event` BEGIN DELETE FROM `event_fts` WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_event_fts_BEFORE_DELETE " +
+                    "BEFORE DELETE ON `Event` BEGIN DELETE FROM `event_fts` WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_event_fts_AFTER_UPDATE " +
+                    "AFTER UPDATE ON `Event` BEGIN INSERT INTO `event_fts`(`docid`, `name`, `description`) " +
+                    "VALUES (NEW.`rowid`, NEW.`name`, NEW.`description`); END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_event_fts_AFTER_INSERT " +
+                    "AFTER INSERT ON `Event` BEGIN INSERT INTO `event_fts`(`docid`, `name`, `description`) " +
+                    "VALUES (NEW.`rowid`, NEW.`name`, NEW.`description`); END");
+            db.execSQL("INSERT INTO `event_fts`(`event_fts`) VALUES('rebuild')");
+        }
+    };
+
+    /**
+     * Version 6 adds the columns for repeating events.
+     */
+    public static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `Event` ADD COLUMN `recurrence` TEXT");
+            db.execSQL("ALTER TABLE `Event` ADD COLUMN `recurrenceEnd` INTEGER");
+            db.execSQL("ALTER TABLE `Event` ADD COLUMN `recurrenceExceptions` TEXT NOT NULL DEFAULT ''");
+            db.execSQL("ALTER TABLE `Event` ADD COLUMN `recurrenceParentId` BLOB");
+        }
+    };
+
+    /**
+     * Version 7 adds the time events were deleted, so that removed events are kept as tombstones
+     * until they are purged.
+     */
+    public static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `Event` ADD COLUMN `deletedAt` INTEGER");
+        }
+    };
+
+    /**
+     * Version 8 replaces the index on the end time (which range queries could never use) with one
+     * on the recurrence rule and start time, and adds the longest duration of events so that range
+     * queries can bound their search on the start time from below.
+     */
+    public static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("DROP INDEX IF EXISTS `index_Event_endTime`");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_Event_recurrence_startTime` ON `Event` (`recurrence`, `startTime`)");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `event_bounds` (`id` INTEGER NOT NULL, `maxDuration` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`id`))");
+            createEventBounds(db);
+        }
+    };
+
+    /**
+     * Version 9 adds the start of the occurrence that an event replaces, so that replaced
+     * occurrences can be exported.
+     */
+    public static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `Event` ADD COLUMN `recurrenceId` INTEGER");
+        }
+    };
+}
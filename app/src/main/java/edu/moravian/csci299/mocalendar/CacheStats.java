@@ -0,0 +1,29 @@
+package edu.moravian.csci299.mocalendar;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts of how often a cache was able to answer a request (a hit) or had to go to the database
+ * (a miss).
+ */
+public class CacheStats {
+    private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong();
+
+    /** Record a request that the cache answered. */
+    public void hit() { hits.incrementAndGet(); }
+
+    /** Record a request that the cache could not answer. */
+    public void miss() { misses.incrementAndGet(); }
+
+    /** @return the number of requests the cache answered */
+    public long getHits() { return hits.get(); }
+
+    /** @return the number of requests the cache could not answer */
+    public long getMisses() { return misses.get(); }
+
+    /** @return the fraction of requests the cache answered, or 0 if there have been none */
+    public double getHitRate() {
+        long hits = getHits(), total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
@@ -1,14 +1,28 @@
 package edu.moravian.csci299.mocalendar;
 
 import android.app.Application;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 
 public class CalendarApplication extends Application {
 
     @Override
     public void onCreate() {
         super.onCreate();
+        StartupTrace.record(StartupTrace.Milestone.PROCESS_START);
+        StartupTrace.record(StartupTrace.Milestone.APPLICATION_CREATED);
 
-        // Initialize the repository with this application as the context
+        // Start creating the repository (and opening the database) in the background
         EventRepository.initialize(this);
+
+        // DateUtils caches the time zone and locale so it must be told when they change
+        IntentFilter filter = new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED);
+        filter.addAction(Intent.ACTION_LOCALE_CHANGED);
+        registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) { DateUtils.resetDefaults(); }
+        }, filter);
     }
 }
@@ -1,57 +1,243 @@
 package edu.moravian.csci299.mocalendar;
 
+import android.database.Cursor;
+
 import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
-import androidx.room.Update;
+import androidx.room.Transaction;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.UUID;
 
 /**
  * The data access object for performing queries involving events on a calendar.
  *
+ * Removed events are kept as tombstones (with their deletedAt set) until they are purged, so every
+ * query leaves out events whose deletedAt is not null.
+ *
  * NOTE: Even though this is complete, you should read it over to see
  * everything that is available for you.
  */
 @Dao
 public interface CalendarDao {
+    /**
+     * The columns selected for an EventSummary, which only includes the first 100 characters of
+     * the description.
+     */
+    String SUMMARY_COLUMNS = "event.id, event.startTime, event.endTime, event.name, event.type, " +
+            "substr(event.description, 1, 100) AS description, event.recurrence > '' AS repeating";
+
+    /**
+     * The condition for events that do not repeat and that overlap the range from :start to :end.
+     * Only events starting at most the longest duration of any event before the range can reach
+     * it, so the index on the start time is searched with both a lower and an upper bound instead
+     * of scanning every event before the range.
+     */
+    String NOT_REPEATING_BETWEEN = "deletedAt IS NULL AND recurrence IS NULL AND " +
+            "startTime >= (:start) - (SELECT maxDuration FROM event_bounds) AND startTime < (:end) AND " +
+            "COALESCE(endTime, startTime) >= (:start)";
+
+    /**
+     * The table and condition for repeating events which could have occurrences that overlap the
+     * range from :start to :end. Repeating events are found through the index on their rule, which
+     * only holds the few events that have one. SQLite would otherwise pick the index on the start
+     * time, which for an ordered query means walking every event.
+     */
+    String REPEATING_BETWEEN = "event INDEXED BY index_Event_recurrence_startTime WHERE deletedAt IS NULL AND " +
+            "recurrence > '' AND startTime < (:end) AND (recurrenceEnd IS NULL OR recurrenceEnd >= (:start))";
+
+    // The range queries, which are checked to use the indices by the query plan tests
+    String EVENTS_BETWEEN = "SELECT * FROM event WHERE " + NOT_REPEATING_BETWEEN +
+            " UNION ALL SELECT * FROM " + REPEATING_BETWEEN + " ORDER BY startTime";
+    String EVENTS_OF_TYPE_BETWEEN = "SELECT * FROM event WHERE " + NOT_REPEATING_BETWEEN + " AND type = (:type)" +
+            " UNION ALL SELECT * FROM " + REPEATING_BETWEEN + " AND type = (:type) ORDER BY startTime";
+    String EVENTS_STARTING_BETWEEN = "SELECT * FROM event WHERE deletedAt IS NULL AND recurrence IS NULL AND " +
+            "startTime >= (:start) AND startTime < (:end) UNION ALL SELECT * FROM " + REPEATING_BETWEEN + " ORDER BY startTime";
+    String EVENT_SUMMARIES_BETWEEN = "SELECT " + SUMMARY_COLUMNS + " FROM event WHERE " + NOT_REPEATING_BETWEEN + " ORDER BY startTime";
+    String REPEATING_EVENTS_BETWEEN = "SELECT * FROM " + REPEATING_BETWEEN;
+
     /**
      * @return live-data view of all events on the calendar
      */
-    @Query("SELECT * FROM event")
+    @Query("SELECT * FROM event WHERE deletedAt IS NULL")
     LiveData<List<Event>> getAllEvents();
 
+    /**
+     * Get a cursor over all events ordered by start time, so that they can be read one at a time
+     * without loading them all at once. The cursor must be closed once done with it.
+     * @return the cursor over all events
+     */
+    @Query("SELECT * FROM event WHERE deletedAt IS NULL ORDER BY startTime")
+    Cursor getAllEventsCursor();
+
     /**
      * Get an event from its ID.
      * @param id the
      * @return live-data view of a single event on the calendar
      */
-    @Query("SELECT * FROM event WHERE id=(:id) LIMIT 1")
+    @Query("SELECT * FROM event WHERE id=(:id) AND deletedAt IS NULL LIMIT 1")
     LiveData<Event> getEventById(UUID id);
 
     /**
-     * Get all events between the start and end dates given. This will include any events that start
-     * or end within that range of date-times.
+     * Get all events that overlap the range of date-times given. This will include any events that
+     * start, end, or are ongoing within that range, ordered by their start time. Assignments (which
+     * have no end time) are treated as ending at their due date.
+     *
+     * Repeating events are included if any of their occurrences could overlap the range, but only
+     * as they are stored (see Event.expandBetween() to get their occurrences).
      * @param start the start date
      * @param end the end date
      * @return live-data view of a list of all events on the calendar between those dates
      */
-    @Query("SELECT * FROM event WHERE startTime BETWEEN (:start) AND (:end) OR endTime BETWEEN (:start) AND (:end)")
+    @Query(EVENTS_BETWEEN)
     LiveData<List<Event>> getEventsBetween(Date start, Date end);
 
     /**
-     * Get all events in a given 24 hour period starting at the given date. This will include any
-     * events that starr or end within that range of date-times.
+     * Get all events that overlap the 24 hour period starting at the given date. This will include
+     * any events that start, end, or are ongoing within that period, ordered by their start time.
+     * Repeating events are included the same way as getEventsBetween().
      * @param date the date at the beginning of the 24 hour period
-     * @return live-data view of a list of all events on the calendar starting at the given date and
-     *         ending within 24 hours
+     * @return live-data view of a list of all events on the calendar that overlap the 24 hours
+     *         starting at the given date
+     */
+    default LiveData<List<Event>> getEventsOnDay(Date date) {
+        return getEventsBetween(date, new Date(date.getTime() + 24 * 60 * 60 * 1000));
+    }
+
+    /**
+     * Get summaries of all events that do not repeat and that overlap the range of date-times
+     * given, ordered by their start time.
+     * @param start the start date
+     * @param end the end date
+     * @return a list of summaries of all non-repeating events between those dates
+     */
+    @Query(EVENT_SUMMARIES_BETWEEN)
+    List<EventSummary> loadEventSummariesBetween(Date start, Date end);
+
+    /**
+     * Get all repeating events which could have occurrences that overlap the range of date-times
+     * given.
+     * @param start the start date
+     * @param end the end date
+     * @return a list of the repeating events as they are stored
+     */
+    @Query(REPEATING_EVENTS_BETWEEN)
+    List<Event> loadRepeatingEventsBetween(Date start, Date end);
+
+    /**
+     * Get an event from its ID. This is the same as getEventById() but loads it immediately.
+     * @param id the id of the event
+     * @return the event, or null if there is none with that id
+     */
+    @Query("SELECT * FROM event WHERE id=(:id) AND deletedAt IS NULL LIMIT 1")
+    Event loadEventById(UUID id);
+
+    /**
+     * Get all events that overlap the range of date-times given. This is the same as
+     * getEventsBetween() but loads them immediately.
+     * @param start the start date
+     * @param end the end date
+     * @return a list of all events between those dates, with repeating events as they are stored
+     */
+    @Query(EVENTS_BETWEEN)
+    List<Event> loadEventsBetween(Date start, Date end);
+
+    /**
+     * Get all events that start within the range of date-times given, ordered by their start time.
+     * Repeating events are included if any of their occurrences could start within the range.
+     * @param start the start date
+     * @param end the end date
+     * @return a list of all events starting between those dates, with repeating events as they are
+     *         stored
+     */
+    @Query(EVENTS_STARTING_BETWEEN)
+    List<Event> loadEventsStartingBetween(Date start, Date end);
+
+    /**
+     * @return the number of events stored, counting a repeating event once
+     */
+    @Query("SELECT COUNT(*) FROM event WHERE deletedAt IS NULL")
+    int countEvents();
+
+    /**
+     * Get summaries of all events matching a full-text search of their names and descriptions
+     * along with the information needed to rank them.
+     * @param query the FTS4 match expression
+     * @return the unranked matching events
+     */
+    @Query("SELECT " + SUMMARY_COLUMNS + ", matchinfo(event_fts, 'pcx') AS matchInfo " +
+            "FROM event JOIN event_fts ON event.rowid = event_fts.docid WHERE event_fts MATCH (:query) AND event.deletedAt IS NULL")
+    List<SearchMatch> getSearchMatches(String query);
+
+    /**
+     * Search the names and descriptions of all events, returning the best matches first. Matches
+     * in the name count for more than matches in the description (see SearchMatch.rank()).
+     * @param query the FTS4 match expression, such as "exam* review*"
+     * @param limit the maximum number of events to return
+     * @return summaries of the best matching events, best first
+     */
+    default List<EventSummary> search(String query, int limit) {
+        if (limit <= 0) { return Collections.emptyList(); }
+        // keep only the best matches seen so far, with the worst of them at the head
+        PriorityQueue<SearchMatch> best = new PriorityQueue<>(limit + 1, (a, b) -> Double.compare(a.rank(), b.rank()));
+        for (SearchMatch match : getSearchMatches(query)) {
+            best.add(match);
+            if (best.size() > limit) { best.poll(); }
+        }
+        List<EventSummary> results = new ArrayList<>(best.size());
+        while (!best.isEmpty()) { results.add(best.poll()); }
+        Collections.reverse(results);
+        return results;
+    }
+
+    /**
+     * Get all events of the given type that overlap the range of date-times given, ordered by their
+     * start time.
+     * @param type the type of events to get
+     * @param start the start date
+     * @param end the end date
+     * @return live-data view of a list of all events of that type between those dates
+     */
+    @Query(EVENTS_OF_TYPE_BETWEEN)
+    LiveData<List<Event>> getEventsOfTypeBetween(EventType type, Date start, Date end);
+
+    /**
+     * Get summaries of a limited number of events starting at or after the given date, ordered by
+     * start time. Used for loading pages of events.
+     * @param start the earliest start date
+     * @param limit the maximum number of events to get
+     * @return the summaries of events starting at or after the start date
+     */
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM event WHERE deletedAt IS NULL AND startTime >= (:start) ORDER BY startTime LIMIT (:limit)")
+    List<EventSummary> getEventSummariesStartingAfter(Date start, int limit);
+
+    /**
+     * Get summaries of a limited number of events starting before the given date, ordered by start
+     * time with the latest first. Used for loading pages of events.
+     * @param end the date all events start before
+     * @param limit the maximum number of events to get
+     * @return the summaries of events starting before the end date, latest first
+     */
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM event WHERE deletedAt IS NULL AND startTime < (:end) ORDER BY startTime DESC LIMIT (:limit)")
+    List<EventSummary> getEventSummariesStartingBefore(Date end, int limit);
+
+    /**
+     * Get summaries of all events starting at exactly the given date.
+     * @param start the start date
+     * @return the summaries of events starting at that date
      */
-    @Query("SELECT * FROM event WHERE startTime BETWEEN (:date) AND (:date + 24*60*60*1000) OR endTime BETWEEN (:date) AND (:date + 24*60*60*1000)")
-    LiveData<List<Event>> getEventsOnDay(Date date);
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM event WHERE deletedAt IS NULL AND startTime = (:start)")
+    List<EventSummary> getEventSummariesStartingAt(Date start);
 
     /**
      * Add an event to the database.
@@ -61,11 +247,30 @@ public interface CalendarDao {
     void addEvent(Event event);
 
     /**
-     * Update an event in the database.
+     * Update every column of an event except when it was deleted. Events that are deleted are left
+     * alone so that a write of an event still in memory cannot restore it.
+     */
+    @Query("UPDATE event SET startTime = (:startTime), endTime = (:endTime), name = (:name), type = (:type), " +
+            "description = (:description), recurrence = (:recurrence), recurrenceEnd = (:recurrenceEnd), " +
+            "recurrenceExceptions = (:recurrenceExceptions), recurrenceParentId = (:recurrenceParentId), " +
+            "recurrenceId = (:recurrenceId) WHERE id = (:id) AND deletedAt IS NULL")
+    void updateEventColumns(UUID id, Date startTime, Date endTime, String name, EventType type, String description,
+                            String recurrence, Date recurrenceEnd, String recurrenceExceptions, UUID recurrenceParentId,
+                            Date recurrenceId);
+
+    // Converts the list of exceptions of an event to its column since Room would expand a list
+    // parameter into a list of values
+    EventTypeConverter CONVERTER = new EventTypeConverter();
+
+    /**
+     * Update an event in the database. This does nothing if the event has been deleted.
      * @param event the event to update
      */
-    @Update
-    void updateEvent(Event event);
+    default void updateEvent(Event event) {
+        updateEventColumns(event.id, event.startTime, event.endTime, event.name, event.type, event.description,
+                event.recurrence, event.recurrenceEnd, CONVERTER.fromDates(event.recurrenceExceptions),
+                event.recurrenceParentId, event.recurrenceId);
+    }
 
     /**
      * Remove an event in the database.
@@ -73,4 +278,257 @@ public interface CalendarDao {
      */
     @Delete
     void removeEvent(Event event);
+
+    /**
+     * Add events to the database, replacing any events with the same ids. An event being replaced
+     * is deleted with its own statement first rather than with INSERT OR REPLACE, since the rows
+     * that REPLACE removes do not fire the delete trigger of the search index (recursive triggers
+     * are off), which would leave their words in the index for good.
+     * @param events the events to add
+     */
+    @Transaction
+    default void addEvents(List<Event> events) {
+        long[] rowIds = addNewEvents(events);
+        // the last of the events with each id wins, as it would with REPLACE
+        Map<UUID, Event> existing = new LinkedHashMap<>();
+        for (int i = 0; i < rowIds.length; i++) {
+            if (rowIds[i] == -1) { existing.put(events.get(i).id, events.get(i)); }
+        }
+        if (existing.isEmpty()) { return; }
+        List<Event> replacing = new ArrayList<>(existing.values());
+        removeEvents(replacing);
+        addNewEvents(replacing);
+    }
+
+    /**
+     * Update events in the database, leaving out any that have been deleted.
+     * @param events the events to update
+     */
+    @Transaction
+    default void updateEvents(List<Event> events) {
+        for (Event event : events) { updateEvent(event); }
+    }
+
+    /**
+     * Remove events from the database.
+     * @param events the events to remove
+     */
+    @Delete
+    void removeEvents(List<Event> events);
+
+    // The fields of an event that can be updated on their own, as bits of a mask, and the mask for
+    // updating the whole event
+    int FIELD_NAME = 1, FIELD_DESCRIPTION = 2, FIELD_TIMES = 4, FIELD_TYPE = 8;
+    int ALL_FIELDS = -1;
+
+    // Update single fields of an event, leaving it alone if it has been deleted like updateEvent()
+    @Query("UPDATE event SET name = (:name) WHERE id = (:id) AND deletedAt IS NULL")
+    void updateEventName(UUID id, String name);
+    @Query("UPDATE event SET description = (:description) WHERE id = (:id) AND deletedAt IS NULL")
+    void updateEventDescription(UUID id, String description);
+    @Query("UPDATE event SET startTime = (:startTime), endTime = (:endTime), recurrenceEnd = (:recurrenceEnd) " +
+            "WHERE id = (:id) AND deletedAt IS NULL")
+    void updateEventTimes(UUID id, Date startTime, Date endTime, Date recurrenceEnd);
+    @Query("UPDATE event SET type = (:type) WHERE id = (:id) AND deletedAt IS NULL")
+    void updateEventType(UUID id, EventType type);
+
+    /**
+     * Update only some of the fields of an event.
+     * @param event the event with the new values of the fields
+     * @param fields the fields to update, as FIELD_ bits or ALL_FIELDS
+     */
+    default void updateEventFields(Event event, int fields) {
+        if (fields == ALL_FIELDS) {
+            updateEvent(event);
+            return;
+        }
+        if ((fields & FIELD_NAME) != 0) { updateEventName(event.id, event.name); }
+        if ((fields & FIELD_DESCRIPTION) != 0) { updateEventDescription(event.id, event.description); }
+        if ((fields & FIELD_TIMES) != 0) { updateEventTimes(event.id, event.startTime, event.endTime, event.recurrenceEnd); }
+        if ((fields & FIELD_TYPE) != 0) { updateEventType(event.id, event.type); }
+    }
+
+    // The most ids given to a single query, well under SQLite's limit of 999 bound values
+    int MAX_IDS_PER_QUERY = 500;
+
+    /**
+     * Set when events were deleted, or clear it to restore them.
+     * @param ids the ids of the events
+     * @param deletedAt the time they were deleted, or null to restore them
+     */
+    @Query("UPDATE event SET deletedAt = (:deletedAt) WHERE id IN (:ids)")
+    void setEventsDeletedAt(List<UUID> ids, Date deletedAt);
+
+    /**
+     * Set when events were deleted, or clear it to restore them, for any number of events.
+     * @param ids the ids of the events
+     * @param deletedAt the time they were deleted, or null to restore them
+     */
+    default void setAllEventsDeletedAt(List<UUID> ids, Date deletedAt) {
+        for (int i = 0; i < ids.size(); i += MAX_IDS_PER_QUERY) {
+            setEventsDeletedAt(ids.subList(i, Math.min(ids.size(), i + MAX_IDS_PER_QUERY)), deletedAt);
+        }
+    }
+
+    /**
+     * Get events from their IDs, leaving out any that are deleted.
+     * @param ids the ids of the events, no more than MAX_IDS_PER_QUERY
+     * @return the events, in no particular order
+     */
+    @Query("SELECT * FROM event WHERE id IN (:ids) AND deletedAt IS NULL")
+    List<Event> loadEventsById(List<UUID> ids);
+
+    /**
+     * Add, update, remove, and restore events all within a single transaction. Events that only
+     * had some of their fields changed have only those fields updated. Removed events are only
+     * marked as deleted and are kept until purgeDeletedEvents() removes them for good, until which
+     * time they can be restored. Events are restored first so that they can also be updated.
+     * @param added the events to add
+     * @param updated the events to update
+     * @param updatedFields the fields to update of each of the updated events, as FIELD_ bits or
+     *                      ALL_FIELDS
+     * @param removed the events to remove
+     * @param restored the ids of removed events to restore
+     * @return the restored events as they are stored, leaving out any that were already purged
+     */
+    @Transaction
+    default List<Event> writeEvents(List<Event> added, List<Event> updated, int[] updatedFields,
+                                    List<Event> removed, List<UUID> restored) {
+        if (!restored.isEmpty()) { setAllEventsDeletedAt(restored, null); }
+        if (!added.isEmpty()) { addEvents(added); }
+        List<Event> whole = new ArrayList<>(updated.size());
+        for (int i = 0; i < updated.size(); i++) {
+            if (updatedFields[i] == ALL_FIELDS) { whole.add(updated.get(i)); }
+            else { updateEventFields(updated.get(i), updatedFields[i]); }
+        }
+        if (!whole.isEmpty()) { updateEvents(whole); }
+        if (!removed.isEmpty()) {
+            List<UUID> ids = new ArrayList<>(removed.size());
+            for (Event event : removed) { ids.add(event.id); }
+            setAllEventsDeletedAt(ids, new Date());
+        }
+        List<Event> restoredEvents = new ArrayList<>(restored.size());
+        if (!restored.isEmpty()) {
+            for (int i = 0; i < restored.size(); i += MAX_IDS_PER_QUERY) {
+                restoredEvents.addAll(loadEventsById(restored.subList(i, Math.min(restored.size(), i + MAX_IDS_PER_QUERY))));
+            }
+        }
+        return restoredEvents;
+    }
+
+    /**
+     * Remove events for good that were deleted before the given time.
+     * @param before the time the events must have been deleted before
+     * @return the number of events removed
+     */
+    @Query("DELETE FROM event WHERE deletedAt < (:before)")
+    int deleteEventsDeletedBefore(Date before);
+
+    /**
+     * Recompute the longest duration of the events that do not repeat (see EventBounds). Events
+     * that are deleted but not purged are included since they can still be restored.
+     */
+    @Query("UPDATE event_bounds SET maxDuration = " +
+            "(SELECT COALESCE(MAX(endTime - startTime), 0) FROM event WHERE recurrence IS NULL)")
+    void updateMaxDuration();
+
+    /**
+     * Remove events for good that were deleted before the given time, all in a single transaction
+     * no matter how many there are. The longest duration of the events is then recomputed since it
+     * may have been one of them.
+     * @param before the time the events must have been deleted before
+     * @return the number of events removed
+     */
+    @Transaction
+    default int purgeDeletedEvents(Date before) {
+        int purged = deleteEventsDeletedBefore(before);
+        if (purged > 0) { updateMaxDuration(); }
+        return purged;
+    }
+
+    /**
+     * Add events that are not already in the database. Events whose ids are already used are
+     * skipped.
+     * @param events the events to add
+     * @return the row id of each event added, or -1 for each one that was skipped
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    long[] addNewEvents(List<Event> events);
+
+    /**
+     * Add an exception to a repeating event without touching any of its other fields.
+     * @param id the id of the repeating event
+     * @param exception the start of the occurrence to skip
+     */
+    @Query("UPDATE event SET recurrenceExceptions = CASE WHEN recurrenceExceptions IS NULL OR recurrenceExceptions = '' " +
+            "THEN (:exception) ELSE recurrenceExceptions || ',' || (:exception) END WHERE id = (:id)")
+    void addRecurrenceException(UUID id, Date exception);
+
+    /**
+     * Remove an exception from a repeating event without touching any of its other fields, so the
+     * occurrence it skipped comes back.
+     * @param id the id of the repeating event
+     * @param exception the start of the occurrence to bring back
+     */
+    @Query("UPDATE event SET recurrenceExceptions = trim(replace(',' || recurrenceExceptions || ',', " +
+            "',' || (:exception) || ',', ','), ',') WHERE id = (:id)")
+    void removeRecurrenceException(UUID id, Date exception);
+
+    /**
+     * Write a batch of imported events in a single transaction. New events are added (skipping any
+     * that are already in the database) and then the exceptions of overrides are added to the
+     * repeating events they belong to. Only the exceptions are written so that any changes made to
+     * those events since they were imported are kept.
+     * @param added the events to add if they are not already in the database
+     * @param exceptions the new exceptions of repeating events, by the id of the repeating event
+     * @return the row id of each added event, or -1 for each one that was already in the database
+     */
+    @Transaction
+    default long[] importEvents(List<Event> added, Map<UUID, List<Date>> exceptions) {
+        long[] rowIds = added.isEmpty() ? new long[0] : addNewEvents(added);
+        for (Map.Entry<UUID, List<Date>> entry : exceptions.entrySet()) {
+            for (Date exception : entry.getValue()) { addRecurrenceException(entry.getKey(), exception); }
+        }
+        return rowIds;
+    }
+
+    /**
+     * Get the ids of events that are still stored as text instead of 16 bytes. In SQLite all text
+     * values sort before all blobs, so these are found using the primary key index.
+     * @param limit the maximum number of ids to get
+     * @return the textual event ids
+     */
+    @Query("SELECT id FROM event WHERE id < X'' LIMIT (:limit)")
+    List<String> getTextEventIds(int limit);
+
+    /**
+     * Change the id of an event stored as text.
+     * @param id the new id
+     * @param textId the current id stored as text
+     */
+    @Query("UPDATE event SET id = (:id) WHERE id = (:textId)")
+    void updateTextEventId(UUID id, String textId);
+
+    /**
+     * Rewrite a chunk of event ids stored as text to be stored as 16 bytes, all within a single
+     * transaction.
+     * @param limit the maximum number of ids to rewrite
+     * @return the number of ids rewritten, 0 once all ids have been rewritten
+     */
+    @Transaction
+    default int rewriteTextEventIds(int limit) {
+        List<String> ids = getTextEventIds(limit);
+        for (String id : ids) { updateTextEventId(UUID.fromString(id), id); }
+        return ids.size();
+    }
+
+    /**
+     * Rewrite the ids of the given events if they are still stored as text, so that writes to them
+     * by id find them while the rest of the ids are still being rewritten.
+     * @param ids the ids of the events
+     */
+    @Transaction
+    default void rewriteTextEventIdsOf(List<UUID> ids) {
+        for (UUID id : ids) { updateTextEventId(id, id.toString()); }
+    }
 }
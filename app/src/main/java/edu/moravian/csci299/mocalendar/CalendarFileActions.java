@@ -0,0 +1,130 @@
+package edu.moravian.csci299.mocalendar;
+
+import android.content.Context;
+import android.content.Intent;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.OpenableColumns;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+
+import com.google.android.material.snackbar.Snackbar;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Imports and exports iCalendar (.ics) files picked by the user, showing the progress and the
+ * result in a snackbar. The snackbar is updated through its own view and context since an import
+ * or export may outlive the view it was started from.
+ */
+final class CalendarFileActions {
+    private CalendarFileActions() {}
+
+    /**
+     * @return an intent for the user to pick a calendar file to import
+     */
+    static Intent importIntent() {
+        Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.setType("*/*");
+        intent.putExtra(Intent.EXTRA_MIME_TYPES, new String[]{"text/calendar", "text/x-vcalendar", "application/ics"});
+        return intent;
+    }
+
+    /**
+     * @return an intent for the user to create a calendar file to export to
+     */
+    static Intent exportIntent() {
+        Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.setType("text/calendar");
+        intent.putExtra(Intent.EXTRA_TITLE, "mocalendar.ics");
+        return intent;
+    }
+
+    /**
+     * Import the events of an iCalendar file, showing the progress of the import in a snackbar.
+     * @param anchor the view to show the snackbar from
+     * @param uri the file to import
+     */
+    static void importCalendar(View anchor, Uri uri) {
+        Context context = anchor.getContext();
+        InputStream input;
+        try {
+            input = context.getContentResolver().openInputStream(uri);
+        } catch (FileNotFoundException ex) {
+            input = null;
+        }
+        if (input == null) {
+            Snackbar.make(anchor, R.string.import_failed, Snackbar.LENGTH_LONG).show();
+            return;
+        }
+        long size = -1;
+        try (Cursor cursor = context.getContentResolver().query(uri, new String[]{OpenableColumns.SIZE}, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst() && !cursor.isNull(0)) { size = cursor.getLong(0); }
+        }
+        long fileSize = size;
+        Snackbar snackbar = Snackbar.make(anchor, R.string.import_started, Snackbar.LENGTH_INDEFINITE);
+        snackbar.show();
+        ListenableFuture<IcsImporter.Result> result = EventRepository.get().importEvents(input,
+                (imported, duplicates, bytesRead) -> snackbar.getView().post(() -> snackbar.setText(snackbar.getContext().getString(R.string.import_progress,
+                        imported, fileSize > 0 ? (int) (100 * bytesRead / fileSize) : 0))));
+        Futures.addCallback(result, new FutureCallback<IcsImporter.Result>() {
+            @Override
+            public void onSuccess(IcsImporter.Result result) {
+                snackbar.setText(snackbar.getContext().getString(R.string.import_done, result.imported, result.duplicates));
+                snackbar.setDuration(Snackbar.LENGTH_LONG);
+                snackbar.show();
+            }
+
+            @Override
+            public void onFailure(@NonNull Throwable t) {
+                snackbar.setText(R.string.import_failed);
+                snackbar.setDuration(Snackbar.LENGTH_LONG);
+                snackbar.show();
+            }
+        }, ContextCompat.getMainExecutor(snackbar.getContext()));
+    }
+
+    /**
+     * Export all events to an iCalendar file, showing the result in a snackbar once done.
+     * @param anchor the view to show the snackbar from
+     * @param uri the file to export to
+     */
+    static void exportCalendar(View anchor, Uri uri) {
+        OutputStream output;
+        try {
+            output = anchor.getContext().getContentResolver().openOutputStream(uri, "w");
+        } catch (FileNotFoundException ex) {
+            output = null;
+        }
+        if (output == null) {
+            Snackbar.make(anchor, R.string.export_failed, Snackbar.LENGTH_LONG).show();
+            return;
+        }
+        Snackbar snackbar = Snackbar.make(anchor, R.string.export_started, Snackbar.LENGTH_INDEFINITE);
+        snackbar.show();
+        Futures.addCallback(EventRepository.get().exportEvents(output), new FutureCallback<Integer>() {
+            @Override
+            public void onSuccess(Integer count) {
+                snackbar.setText(snackbar.getContext().getString(R.string.export_done, count));
+                snackbar.setDuration(Snackbar.LENGTH_LONG);
+                snackbar.show();
+            }
+
+            @Override
+            public void onFailure(@NonNull Throwable t) {
+                snackbar.setText(R.string.export_failed);
+                snackbar.setDuration(Snackbar.LENGTH_LONG);
+                snackbar.show();
+            }
+        }, ContextCompat.getMainExecutor(snackbar.getContext()));
+    }
+}
@@ -5,13 +5,18 @@ import android.os.Bundle;
 
 import androidx.annotation.NonNull;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.LiveData;
 
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.CalendarView;
+import android.widget.ImageView;
+import android.widget.LinearLayout;
+import android.widget.TextView;
 
 import java.util.Date;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -19,6 +24,9 @@ import java.util.Objects;
  * is called to inform the hosting activity. This calendar auto-updates its arguments with the
  * last highlighted day so that when it is rotated the same day is still highlighted.
  *
+ * Below the calendar is a strip of markers for the busy days in the month of the highlighted day.
+ * These come from a single per-month query of event counts.
+ *
  * NOTE: this is the easiest of the core fragments to complete
  */
 public class CalendarFragment extends Fragment implements CalendarView.OnDateChangeListener {
@@ -40,6 +48,11 @@ public class CalendarFragment extends Fragment implements CalendarView.OnDateCha
     // the hosting activity callbacks
     private Callbacks callbacks;
 
+    // the calendar, the busy day markers, and the month of event counts being shown as markers
+    private CalendarView calendarView;
+    private LinearLayout busyDays;
+    private LiveData<List<DayEventCount>> eventCounts;
+
     /**
      * Use this factory method to create a new instance of this fragment that
      * highlights today initially.
@@ -76,14 +89,64 @@ public class CalendarFragment extends Fragment implements CalendarView.OnDateCha
         View base = inflater.inflate(R.layout.fragment_calendar, container, false);
 
         // Setup the calendar
-        CalendarView calendarView = base.findViewById(R.id.calendarView);
+        calendarView = base.findViewById(R.id.calendarView);
         calendarView.setOnDateChangeListener(this);
         calendarView.setDate(date.getTime());
 
+        // Setup the busy day markers
+        busyDays = base.findViewById(R.id.busy_days);
+        eventCounts = null;
+        showEventCounts(date);
+
         // Return the base view
         return base;
     }
 
+    /**
+     * Highlight a day without telling the hosting activity, for when the day was changed elsewhere.
+     * @param date the day to highlight
+     */
+    public void setDay(Date date) {
+        Objects.requireNonNull(getArguments()).putSerializable(ARG_DATE, date);
+        if (calendarView == null) { return; }
+        calendarView.setDate(date.getTime());
+        showEventCounts(date);
+    }
+
+    /**
+     * Show the busy day markers for the month containing the given date. If that month is already
+     * being shown then nothing changes.
+     * @param date any date within the month to show
+     */
+    private void showEventCounts(Date date) {
+        LiveData<List<DayEventCount>> counts = EventRepository.get().getEventCountsInMonth(date);
+        if (counts == eventCounts) { return; }
+        if (eventCounts != null) { eventCounts.removeObservers(getViewLifecycleOwner()); }
+        eventCounts = counts;
+        eventCounts.observe(getViewLifecycleOwner(), this::updateBusyDays);
+    }
+
+    /**
+     * Replace the busy day markers with one marker for each of the given days. Each marker shows
+     * the icon of the most common type of event that day, the day of the month, and the number of
+     * events. Clicking a marker selects that day.
+     * @param counts the event counts for each busy day of a month
+     */
+    private void updateBusyDays(List<DayEventCount> counts) {
+        busyDays.removeAllViews();
+        for (DayEventCount count : counts) {
+            View marker = getLayoutInflater().inflate(R.layout.busy_day_item, busyDays, false);
+            int[] day = DateUtils.getYearMonthDay(count.day);
+            ((ImageView) marker.findViewById(R.id.eventTypeIcon)).setImageResource(EventTypeIcons.of(count.dominantType));
+            ((TextView) marker.findViewById(R.id.busy_day)).setText(getString(R.string.busy_day, day[2], count.eventCount));
+            marker.setOnClickListener(v -> {
+                calendarView.setDate(count.day.getTime());
+                onSelectedDayChange(calendarView, day[0], day[1], day[2]);
+            });
+            busyDays.addView(marker);
+        }
+    }
+
     /**
      * Set the Callbacks
      */
@@ -113,6 +176,7 @@ public class CalendarFragment extends Fragment implements CalendarView.OnDateCha
     public void onSelectedDayChange(@NonNull CalendarView view, int year, int month, int dayOfMonth) {
         Date date = DateUtils.getDate(year, month, dayOfMonth);
         Objects.requireNonNull(getArguments()).putSerializable(ARG_DATE, date);
+        showEventCounts(date);
         callbacks.onDayChanged(date);
     }
 }
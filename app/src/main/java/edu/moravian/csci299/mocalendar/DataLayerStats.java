@@ -0,0 +1,309 @@
+package edu.moravian.csci299.mocalendar;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Statistics about the work done by the data layer: how long each operation takes and how many
+ * rows it returns, and how long tasks wait on each executor and how many are waiting. Operations
+ * that take longer than SLOW_MS are kept in a slow log along with the SQL they ran, which is
+ * collected through Room's query callback. The callback is only installed in debug builds (or ones
+ * built with QUERY_STATS), so elsewhere the slow log has no SQL.
+ *
+ * Tasks run on an executor that are not timed as a named operation (such as the queries behind
+ * the DAO's live-data) are timed under the first SQL statement they ran instead, so every query
+ * is counted somewhere.
+ */
+public class DataLayerStats {
+    private static final String TAG = "DataLayerStats";
+
+    // operations at least this long (in ms) are added to the slow log
+    public static final long SLOW_MS = 50;
+    // the number of slow operations kept in the slow log
+    private static final int SLOW_LOG_SIZE = 50;
+    // the upper bounds (in ms) of the buckets of each histogram, the last bucket has everything slower
+    private static final long[] BUCKETS = {1, 2, 4, 8, 16, 32, 64, 128, 256, 512, 1024};
+
+    /** An operation to time, which may throw a checked exception. */
+    public interface Operation<T, E extends Exception> { T run() throws E; }
+
+    /** A histogram of durations, in power-of-two buckets of ms. */
+    public static class Histogram {
+        private final long[] counts = new long[BUCKETS.length + 1];
+        private long count, total, max;
+
+        synchronized void record(long ms) {
+            int bucket = 0;
+            while (bucket < BUCKETS.length && ms > BUCKETS[bucket]) { bucket++; }
+            counts[bucket]++;
+            count++;
+            total += ms;
+            max = Math.max(max, ms);
+        }
+
+        /** @return the number of durations recorded */
+        public synchronized long getCount() { return count; }
+
+        /** @return the mean duration in ms, or 0 if none have been recorded */
+        public synchronized double getMean() { return count == 0 ? 0 : (double) total / count; }
+
+        /** @return the longest duration in ms */
+        public synchronized long getMax() { return max; }
+
+        /**
+         * @param fraction the fraction of durations, such as 0.95
+         * @return the upper bound of the bucket that holds the given fraction of the durations, or
+         *         the max for the last bucket
+         */
+        public synchronized long getPercentile(double fraction) {
+            long target = (long) Math.ceil(fraction * count), seen = 0;
+            for (int i = 0; i < BUCKETS.length; i++) {
+                seen += counts[i];
+                if (seen >= target) { return Math.min(BUCKETS[i], max); }
+            }
+            return max;
+        }
+
+        @NonNull
+        @Override
+        public synchronized String toString() {
+            return String.format("n=%d mean=%.1f p50<=%d p95<=%d max=%d",
+                    count, getMean(), getPercentile(0.5), getPercentile(0.95), max);
+        }
+    }
+
+    /** The statistics of a single operation. */
+    public static class OperationStats {
+        public final Histogram latency = new Histogram();
+        private long rows;
+
+        synchronized void record(long ms, long rows) {
+            latency.record(ms);
+            this.rows += rows;
+        }
+
+        /** @return the total number of rows returned by the operation */
+        public synchronized long getRows() { return rows; }
+    }
+
+    /** The statistics of an executor. */
+    public static class LaneStats {
+        public final Histogram wait = new Histogram();
+        public final Histogram run = new Histogram();
+        private final AtomicInteger depth = new AtomicInteger();
+        private int maxDepth;
+
+        /** @return the number of tasks currently waiting */
+        public int getDepth() { return depth.get(); }
+
+        /** @return the most tasks that have been waiting at once */
+        public synchronized int getMaxDepth() { return maxDepth; }
+
+        void enqueued() {
+            int now = depth.incrementAndGet();
+            synchronized (this) { maxDepth = Math.max(maxDepth, now); }
+        }
+    }
+
+    /** An operation that was slow, with the SQL it ran. */
+    public static class SlowOperation {
+        public final String name;
+        public final long ms;
+        public final Date when;
+        public final List<String> statements;
+
+        SlowOperation(String name, long ms, List<String> statements) {
+            this.name = name;
+            this.ms = ms;
+            this.when = new Date();
+            this.statements = statements;
+        }
+    }
+
+    /** The operation running on a thread and the SQL run during it. */
+    private static class Scope {
+        final List<String> statements = new ArrayList<>();
+        boolean hasNamed;
+    }
+
+    private final Map<String, OperationStats> operations = new TreeMap<>();
+    private final Map<String, LaneStats> lanes = new TreeMap<>();
+    private final ArrayDeque<SlowOperation> slowLog = new ArrayDeque<>();
+    private final ThreadLocal<Scope> current = new ThreadLocal<>();
+
+    /**
+     * Told about each SQL statement as it is run. Must be given to Room with an executor that runs
+     * it right away, so that it runs on the thread running the statement.
+     */
+    public void onQuery(@NonNull String sql, @NonNull List<Object> bindArgs) {
+        Scope scope = current.get();
+        if (scope != null) { scope.statements.add(sql); }
+    }
+
+    /**
+     * Run an operation, recording how long it takes and how many rows it returns.
+     * @param name the name of the operation
+     * @param operation the operation to run
+     * @return the result of the operation
+     * @throws E if the operation throws it
+     */
+    public <T, E extends Exception> T time(String name, Operation<T, E> operation) throws E {
+        Scope parent = current.get(), scope = new Scope();
+        current.set(scope);
+        long start = System.nanoTime();
+        T result = null;
+        try {
+            result = operation.run();
+            return result;
+        } finally {
+            long ms = (System.nanoTime() - start) / 1000000;
+            current.set(parent);
+            if (parent != null) {
+                parent.hasNamed = true;
+                parent.statements.addAll(scope.statements);
+            }
+            record(name, ms, rowsOf(result), scope.statements);
+        }
+    }
+
+    /**
+     * Wrap a task given to an executor so that the time it waits and the time it runs are recorded.
+     * @param lane the name of the executor
+     * @param task the task
+     * @return the task to give the executor instead
+     */
+    public Runnable queued(String lane, Runnable task) {
+        LaneStats stats = getLaneStats(lane);
+        stats.enqueued();
+        long queued = System.nanoTime();
+        return () -> {
+            long start = System.nanoTime();
+            stats.depth.decrementAndGet();
+            stats.wait.record((start - queued) / 1000000);
+            Scope parent = current.get(), scope = new Scope();
+            current.set(scope);
+            try {
+                task.run();
+            } finally {
+                current.set(parent);
+                long ms = (System.nanoTime() - start) / 1000000;
+                stats.run.record(ms);
+                String first = firstStatement(scope.statements);
+                if (!scope.hasNamed && first != null) { record("query: " + first, ms, 0, scope.statements); }
+            }
+        };
+    }
+
+    /**
+     * @param name the name of an operation
+     * @return its statistics, or null if it has not been run
+     */
+    public OperationStats getOperationStats(String name) {
+        synchronized (operations) { return operations.get(name); }
+    }
+
+    /**
+     * @param lane the name of an executor
+     * @return its statistics
+     */
+    public LaneStats getLaneStats(String lane) {
+        synchronized (lanes) {
+            LaneStats stats = lanes.get(lane);
+            if (stats == null) {
+                stats = new LaneStats();
+                lanes.put(lane, stats);
+            }
+            return stats;
+        }
+    }
+
+    /**
+     * @return the slow operations, oldest first
+     */
+    public List<SlowOperation> getSlowLog() {
+        synchronized (slowLog) { return new ArrayList<>(slowLog); }
+    }
+
+    /**
+     * Write all of the statistics as text.
+     * @param writer where to write them
+     * @throws IOException if they cannot be written
+     */
+    public void dump(Writer writer) throws IOException {
+        writer.write("Executors:\n");
+        synchronized (lanes) {
+            for (Map.Entry<String, LaneStats> entry : lanes.entrySet()) {
+                LaneStats stats = entry.getValue();
+                writer.write(String.format("  %s: depth=%d maxDepth=%d\n    wait %s\n    run  %s\n", entry.getKey(),
+                        stats.getDepth(), stats.getMaxDepth(), stats.wait, stats.run));
+            }
+        }
+        writer.write("Operations:\n");
+        synchronized (operations) {
+            for (Map.Entry<String, OperationStats> entry : operations.entrySet()) {
+                writer.write(String.format("  %s\n    %s rows=%d\n", entry.getKey(),
+                        entry.getValue().latency, entry.getValue().getRows()));
+            }
+        }
+        writer.write("Slow operations (>= " + SLOW_MS + " ms):\n");
+        for (SlowOperation slow : getSlowLog()) {
+            writer.write(String.format("  %tT %s %d ms\n", slow.when, slow.name, slow.ms));
+            for (String sql : slow.statements) { writer.write("    " + sql + "\n"); }
+        }
+    }
+
+    /**
+     * Record a run of an operation, adding it to the slow log if it was slow.
+     */
+    private void record(String name, long ms, long rows, List<String> statements) {
+        OperationStats stats;
+        synchronized (operations) {
+            stats = operations.get(name);
+            if (stats == null) {
+                stats = new OperationStats();
+                operations.put(name, stats);
+            }
+        }
+        stats.record(ms, rows);
+        if (ms >= SLOW_MS) {
+            synchronized (slowLog) {
+                if (slowLog.size() == SLOW_LOG_SIZE) { slowLog.removeFirst(); }
+                slowLog.addLast(new SlowOperation(name, ms, statements));
+            }
+            if (BuildConfig.DEBUG) { Log.w(TAG, "Slow operation " + name + ": " + ms + " ms " + statements); }
+        }
+    }
+
+    /**
+     * @return the first statement that is not part of running a transaction, or null if there is none
+     */
+    private static String firstStatement(List<String> statements) {
+        for (String sql : statements) {
+            if (!sql.startsWith("BEGIN") && !sql.startsWith("END") && !sql.startsWith("TRANSACTION")) { return sql; }
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of rows in the result of an operation
+     */
+    private static long rowsOf(Object result) {
+        if (result == null) { return 0; }
+        if (result instanceof Collection) { return ((Collection<?>) result).size(); }
+        if (result instanceof long[]) { return ((long[]) result).length; }
+        if (result instanceof Number) { return ((Number) result).longValue(); }
+        return 1;
+    }
+}
@@ -0,0 +1,32 @@
+package edu.moravian.csci299.mocalendar;
+
+import androidx.annotation.NonNull;
+
+import java.util.Date;
+
+/**
+ * The number of events on a single day along with the most common type of event on that day. These
+ * are counted from the events of a whole month, with repeating events expanded and multi-day events
+ * counted on each of their days, so that the calendar can mark its busy days without querying each
+ * day separately.
+ */
+public class DayEventCount {
+    /**
+     * Midnight at the start of the day.
+     */
+    @NonNull
+    public Date day = new Date();
+    /**
+     * The most common type of event on the day.
+     */
+    @NonNull
+    public EventType dominantType = EventType.GENERIC;
+    /**
+     * The number of events on the day with the dominant type.
+     */
+    public int dominantTypeCount;
+    /**
+     * The total number of events on the day.
+     */
+    public int eventCount;
+}
@@ -0,0 +1,21 @@
+package edu.moravian.csci299.mocalendar;
+
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * A single row holding the longest duration of any event that does not repeat. It is kept up to
+ * date by triggers on the event table (see AppDatabase.createEventBounds()) and only ever grows
+ * between purges, so it is always at least the longest duration. This lets range queries look for
+ * events starting no earlier than maxDuration before the range, which bounds both sides of their
+ * index search on the start time (see CalendarDao.NOT_REPEATING_BETWEEN).
+ */
+@Entity(tableName = "event_bounds")
+public class EventBounds {
+    @PrimaryKey
+    public int id;
+    /**
+     * The longest duration of an event that does not repeat, in ms.
+     */
+    public long maxDuration;
+}
@@ -1,7 +1,11 @@
 package edu.moravian.csci299.mocalendar;
 
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
 
 import android.text.Editable;
@@ -13,13 +17,21 @@ import android.widget.EditText;
 import android.widget.ImageView;
 import android.widget.TextView;
 
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
 import java.util.Date;
+import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
 
 /**
  * The fragment for a single event. It allows editing all of the details of the event, either with
  * text edit boxes (for the name and description) or popup windows (for the date, start time,
- * time and type). The event is not updated in the database until the user leaves this fragment.
+ * time and type). The fields that were changed are tracked, and only those are written to the
+ * database: a short while after the last change (so that edits are not lost if the app is killed)
+ * and when the user leaves this fragment. Nothing is written if nothing changed.
  */
 public class EventFragment extends Fragment implements TextWatcher, DatePickerFragment.Callbacks,
         EventTypePickerFragment.Callbacks, TimePickerFragment.Callbacks {
@@ -37,22 +49,31 @@ public class EventFragment extends Fragment implements TextWatcher, DatePickerFr
     private static final int REQUEST_TIME = 1;
     private static final int REQUEST_EVENT_TYPE = 2;
 
+    // how long after the last change the event is saved, in ms
+    private static final long AUTOSAVE_DELAY = 2000;
+
     // argument once loaded from database
     private Event event;
-    private TextView eventDate, eventStartTime, eventEndTime, till;
+    // the fields of the event changed since it was last saved (as CalendarDao.FIELD_ bits)
+    private int dirtyFields;
+    private final Handler autosaveHandler = new Handler(Looper.getMainLooper());
+    private final Runnable autosave = this::save;
+    private TextView eventDate, eventStartTime, eventEndTime, till, conflicts;
+    // the check for events conflicting with the event's time that is running, if any
+    private ListenableFuture<List<Event>> conflictCheck;
     private EditText eventName, eventDescription;
     private ImageView eventIcon;
 
     /**
      * Use this factory method to create a new instance of this fragment that
-     * show the details for the given event.
-     * @param event the event to show information about
+     * show the details for the given event. The full event is loaded from the database.
+     * @param eventId the id of the event to show information about
      * @return a new instance of fragment EventFragment
      */
-    public static EventFragment newInstance(Event event) {
+    public static EventFragment newInstance(UUID eventId) {
         EventFragment fragment = new EventFragment();
         Bundle args = new Bundle();
-        args.putSerializable(ARG_EVENT_ID, event.id);
+        args.putSerializable(ARG_EVENT_ID, eventId);
         fragment.setArguments(args);
         return fragment;
     }
@@ -69,8 +90,13 @@ public class EventFragment extends Fragment implements TextWatcher, DatePickerFr
         if (arguments != null && arguments.containsKey(ARG_EVENT_ID)) {
             UUID id = (UUID)arguments.getSerializable(ARG_EVENT_ID);
             EventRepository.get().getEventById(id).observe(this, event -> {
+                if (event == null) return;  // a new event that has not been written yet
+                // only the first load is shown, the event is then changed here and saved back, so
+                // reloading it after each save would only move the cursor while typing
+                if (this.event != null) return;
                 this.event = event;
                 updateUI();
+                checkConflicts();
             });
         }
     }
@@ -92,6 +118,7 @@ public class EventFragment extends Fragment implements TextWatcher, DatePickerFr
         eventEndTime = base.findViewById(R.id.date);
         eventIcon = base.findViewById(R.id.eventTypeIcon);
         till = base.findViewById(R.id.till);
+        conflicts = base.findViewById(R.id.conflicts);
 
         // Text listeners for the name and description of an event
         eventName.addTextChangedListener(this);
@@ -142,7 +169,48 @@ public class EventFragment extends Fragment implements TextWatcher, DatePickerFr
             eventEndTime.setText(DateUtils.toTimeString(event.endTime));
             till.setText(R.string.till);
         }
-        eventIcon.setImageResource(event.type.iconResourceId);
+        eventIcon.setImageResource(EventTypeIcons.of(event.type));
+    }
+
+    /**
+     * Check for other events whose times conflict with the event's in the background and list them
+     * below the event once found. A check that is still running is cancelled since its time is out
+     * of date.
+     */
+    private void checkConflicts() {
+        if (conflictCheck != null) { conflictCheck.cancel(false); }
+        ListenableFuture<List<Event>> check = EventRepository.get().findConflicts(event.id, event.startTime, event.endTime);
+        conflictCheck = check;
+        Futures.addCallback(check, new FutureCallback<List<Event>>() {
+            @Override
+            public void onSuccess(List<Event> events) {
+                if (conflictCheck != check || conflicts == null) { return; }
+                conflictCheck = null;
+                showConflicts(events);
+            }
+
+            @Override
+            public void onFailure(@NonNull Throwable t) { }  // cancelled, or the time is shown without a warning
+        }, ContextCompat.getMainExecutor(requireContext()));
+    }
+
+    /**
+     * Show the events that conflict with the event, or nothing if there are none.
+     * @param events the conflicting events
+     */
+    private void showConflicts(List<Event> events) {
+        if (events.isEmpty()) {
+            conflicts.setVisibility(View.GONE);
+            return;
+        }
+        StringBuilder names = new StringBuilder();
+        for (Event other : events) {
+            if (names.length() > 0) { names.append(", "); }
+            names.append(other.name).append(" (").append(DateUtils.toTimeString(other.startTime.getTime()))
+                    .append(" - ").append(DateUtils.toTimeString(other.endTime.getTime())).append(')');
+        }
+        conflicts.setText(getString(R.string.conflicts_with, names));
+        conflicts.setVisibility(View.VISIBLE);
     }
 
     /**
@@ -154,10 +222,16 @@ public class EventFragment extends Fragment implements TextWatcher, DatePickerFr
     public void afterTextChanged(Editable s) {
         if (event == null) return;  // Used for when rotating the phone while editing the EditTexts
         String str = s.toString();
-        if (str.equals(eventName.getText().toString())) {
-            event.name = eventName.getText().toString();
-        } else if (str.equals(eventDescription.getText().toString())) {
-            event.description = eventDescription.getText().toString();
+        if (s == eventName.getText()) {
+            if (!str.equals(event.name)) {
+                event.name = str;
+                changed(CalendarDao.FIELD_NAME);
+            }
+        } else if (s == eventDescription.getText()) {
+            if (!str.equals(event.description)) {
+                event.description = str;
+                changed(CalendarDao.FIELD_DESCRIPTION);
+            }
         }
     }
 
@@ -169,13 +243,34 @@ public class EventFragment extends Fragment implements TextWatcher, DatePickerFr
     @Override
     public void onTextChanged(CharSequence s, int start, int before, int count) { }
 
+    /**
+     * Record that fields of the event changed and (re)start the wait before autosaving them.
+     * @param fields the fields that changed, as CalendarDao.FIELD_ bits
+     */
+    private void changed(int fields) {
+        dirtyFields |= fields;
+        autosaveHandler.removeCallbacks(autosave);
+        autosaveHandler.postDelayed(autosave, AUTOSAVE_DELAY);
+    }
+
+    /**
+     * Write the changed fields of the event to the database, if any changed. A copy is written so
+     * that later edits do not change what is being written.
+     */
+    private void save() {
+        autosaveHandler.removeCallbacks(autosave);
+        if (event == null || dirtyFields == 0) return;
+        EventRepository.get().updateEventFields(event.copy(), dirtyFields);
+        dirtyFields = 0;
+    }
+
     /**
      * Save the edits to the database when the fragment is stopped.
      */
     @Override
     public void onStop() {
         super.onStop();
-        EventRepository.get().updateEvent(event);
+        save();
     }
 
     /**
@@ -185,9 +280,12 @@ public class EventFragment extends Fragment implements TextWatcher, DatePickerFr
      */
     @Override
     public void onDateSelected(Date date) {
+        Date oldStart = event.startTime;
         event.startTime = DateUtils.combineDateAndTime(date, event.startTime);
         event.endTime = DateUtils.fixEndTime(event.startTime, event.endTime);
+        if (!event.startTime.equals(oldStart)) { changed(CalendarDao.FIELD_TIMES); }
         updateUI();
+        checkConflicts();
     }
 
     /**
@@ -196,6 +294,7 @@ public class EventFragment extends Fragment implements TextWatcher, DatePickerFr
      */
     @Override
     public void onTypeSelected(EventType type) {
+        if (type != event.type) { changed(CalendarDao.FIELD_TYPE); }
         event.type = type;
         updateUI();
     }
@@ -209,6 +308,7 @@ public class EventFragment extends Fragment implements TextWatcher, DatePickerFr
      */
     @Override
     public void onTimeSelected(boolean startTime, Date date) {
+        Date oldStart = event.startTime, oldEnd = event.endTime;
         if (startTime) { // the time selected is the starting time
             Date newStart = DateUtils.combineDateAndTime(event.startTime, date);
             // Update end time 
@@ -218,6 +318,10 @@ public class EventFragment extends Fragment implements TextWatcher, DatePickerFr
             // Make sure end time is not before start time
             event.endTime = DateUtils.fixEndTime(event.startTime, date); 
         }
+        if (!event.startTime.equals(oldStart) || !Objects.equals(event.endTime, oldEnd)) {
+            changed(CalendarDao.FIELD_TIMES);
+        }
         updateUI();
+        checkConflicts();
     }
 }
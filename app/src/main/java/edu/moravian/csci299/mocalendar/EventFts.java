@@ -0,0 +1,25 @@
+package edu.moravian.csci299.mocalendar;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+
+/**
+ * The full-text search index over the names and descriptions of events. This is an external
+ * content table: the text itself lives only in the event table and Room keeps this index in sync
+ * with it using triggers. Rows are matched to events by their rowid.
+ */
+@Fts4(contentEntity = Event.class)
+@Entity(tableName = "event_fts")
+public class EventFts {
+    /**
+     * Name of the event.
+     */
+    @NonNull
+    public String name = "";
+    /**
+     * The description of the event.
+     */
+    @NonNull
+    public String description = "";
+}
@@ -0,0 +1,93 @@
+package edu.moravian.csci299.mocalendar;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.UUID;
+
+/**
+ * The view holder of a single event in a RecyclerView list of events.
+ */
+class EventHolder extends RecyclerView.ViewHolder {
+    /**
+     * How lists of events are compared to find which events changed. Occurrences of a repeating
+     * event share an id, so their start times tell them apart.
+     */
+    static final DiffUtil.ItemCallback<EventSummary> DIFF = new DiffUtil.ItemCallback<EventSummary>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull EventSummary oldItem, @NonNull EventSummary newItem) {
+            return oldItem.id.equals(newItem.id) && oldItem.startTime.equals(newItem.startTime);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull EventSummary oldItem, @NonNull EventSummary newItem) {
+            return oldItem.hasSameContents(newItem);
+        }
+    };
+
+    /**
+     * Told when the event of a holder is clicked.
+     */
+    interface OnEventClickListener {
+        /**
+         * @param eventId the id of the event clicked
+         */
+        void onEventClicked(UUID eventId);
+    }
+
+    // currently bound event
+    EventSummary event;
+
+    // the text views in the view we are holding
+    final TextView eventName, eventDescription, startTime, endTime;
+    final ImageView eventIcon;
+
+    /**
+     * Create a new event holder for the given view.
+     * @param itemView the view to have within this holder
+     * @param onClick told when the event is clicked
+     */
+    EventHolder(@NonNull View itemView, OnEventClickListener onClick) {
+        super(itemView);
+        eventName = itemView.findViewById(R.id.event_name);
+        eventDescription = itemView.findViewById(R.id.description);
+        startTime = itemView.findViewById(R.id.start_time);
+        endTime = itemView.findViewById(R.id.date);
+        eventIcon = itemView.findViewById(R.id.eventTypeIcon);
+        itemView.setOnClickListener(v -> onClick.onEventClicked(event.id));
+    }
+
+    /**
+     * Create a new event holder with a new view for a list.
+     * @param parent the list the view will be in
+     * @param onClick told when the event is clicked
+     * @return the new holder
+     */
+    static EventHolder create(@NonNull ViewGroup parent, OnEventClickListener onClick) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.list_item, parent, false);
+        return new EventHolder(view, onClick);
+    }
+
+    /**
+     * Bind this holder to the given event.
+     * @param event the event to show
+     * @param showDate true to show the date of the event along with its start time
+     */
+    void bind(EventSummary event, boolean showDate) {
+        this.event = event;
+        eventName.setText(event.name);
+        eventDescription.setText(event.description);
+        long startMs = event.startTime.getTime();
+        String start = DateUtils.toTimeString(startMs);
+        startTime.setText(showDate ? DateUtils.toDateString(startMs) + " " + start : start);
+        endTime.setText(event.endTime != null ? DateUtils.toTimeString(event.endTime.getTime()) : "");
+        eventIcon.setImageResource(EventTypeIcons.of(event.type));
+    }
+}
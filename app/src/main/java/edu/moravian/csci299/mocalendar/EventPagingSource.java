@@ -0,0 +1,122 @@
+package edu.moravian.csci299.mocalendar;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.paging.ListenableFuturePagingSource;
+import androidx.paging.PagingState;
+import androidx.room.InvalidationTracker;
+import androidx.room.RoomDatabase;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * A source of pages of event summaries ordered by start time. Each page is keyed by a start time (in ms):
+ * appended pages contain events starting at or after their key and prepended pages contain events
+ * starting before their key. This allows scrolling through any number of events in either direction
+ * while only the pages near what is visible are held in memory.
+ *
+ * Pages never split a group of events with the same start time, so a page may be slightly larger
+ * than requested. When the event table changes the source invalidates itself so a new one is made.
+ */
+public class EventPagingSource extends ListenableFuturePagingSource<Long, EventSummary> {
+    private final CalendarDao calendarDao;
+    private final Executor executor;
+
+    /**
+     * Create a new source of pages of events.
+     * @param database the database to watch for changes to the event table
+     * @param calendarDao the DAO to load the events with
+     */
+    public EventPagingSource(RoomDatabase database, CalendarDao calendarDao) {
+        this.calendarDao = calendarDao;
+        this.executor = database.getQueryExecutor();
+        InvalidationTracker.Observer observer = new InvalidationTracker.Observer("Event") {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) { invalidate(); }
+        };
+        database.getInvalidationTracker().addObserver(observer);
+        registerInvalidatedCallback(() -> {
+            database.getInvalidationTracker().removeObserver(observer);
+            return null;
+        });
+    }
+
+    /**
+     * Load a page of events in the background.
+     */
+    @NonNull
+    @Override
+    public ListenableFuture<LoadResult<Long, EventSummary>> loadFuture(@NonNull LoadParams<Long> params) {
+        ListenableFutureTask<LoadResult<Long, EventSummary>> task = ListenableFutureTask.create(() -> {
+            Long key = params.getKey();
+            long start = key == null ? System.currentTimeMillis() : key;
+            return params instanceof LoadParams.Prepend ?
+                    loadBefore(start, params.getLoadSize()) : loadAfter(start, params.getLoadSize());
+        });
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Load the events starting at or after the given time.
+     * @param start the time (in ms) that all events in the page start at or after
+     * @param loadSize the number of events to load
+     * @return the page of events
+     */
+    private LoadResult<Long, EventSummary> loadAfter(long start, int loadSize) {
+        List<EventSummary> events = new ArrayList<>(calendarDao.getEventSummariesStartingAfter(new Date(start), loadSize));
+        Long nextKey = null;
+        if (events.size() >= loadSize) {
+            // make sure all events at the last start time are in this page
+            Date last = events.get(events.size() - 1).startTime;
+            while (!events.isEmpty() && events.get(events.size() - 1).startTime.equals(last)) {
+                events.remove(events.size() - 1);
+            }
+            events.addAll(calendarDao.getEventSummariesStartingAt(last));
+            nextKey = last.getTime() + 1;
+        }
+        return new LoadResult.Page<>(events, start, nextKey);
+    }
+
+    /**
+     * Load the events starting before the given time.
+     * @param end the time (in ms) that all events in the page start before
+     * @param loadSize the number of events to load
+     * @return the page of events
+     */
+    private LoadResult<Long, EventSummary> loadBefore(long end, int loadSize) {
+        List<EventSummary> events = new ArrayList<>(calendarDao.getEventSummariesStartingBefore(new Date(end), loadSize));
+        Long prevKey = null;
+        if (events.size() >= loadSize) {
+            // make sure all events at the first start time are in this page
+            Date first = events.get(events.size() - 1).startTime;
+            while (!events.isEmpty() && events.get(events.size() - 1).startTime.equals(first)) {
+                events.remove(events.size() - 1);
+            }
+            events.addAll(calendarDao.getEventSummariesStartingAt(first));
+            prevKey = first.getTime();
+        }
+        Collections.reverse(events);
+        return new LoadResult.Page<>(events, prevKey, end);
+    }
+
+    /**
+     * When refreshing, start from the event closest to what was last visible.
+     */
+    @Nullable
+    @Override
+    public Long getRefreshKey(@NonNull PagingState<Long, EventSummary> state) {
+        Integer position = state.getAnchorPosition();
+        if (position == null) { return null; }
+        EventSummary event = state.closestItemToPosition(position);
+        return event == null ? null : event.startTime.getTime();
+    }
+}
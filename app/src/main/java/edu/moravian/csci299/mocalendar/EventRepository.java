@@ -1,62 +1,729 @@
 package edu.moravian.csci299.mocalendar;
 
 import android.content.Context;
+import android.os.Process;
 
+import androidx.core.util.Pair;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
 import androidx.room.Room;
+import androidx.room.RoomDatabase;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.UUID;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class EventRepository {
+    // The number of events in each page of a paged list of events
+    private static final int PAGE_SIZE = 50;
+    // The number of event ids rewritten in each transaction after migrating the database
+    private static final int ID_REWRITE_CHUNK_SIZE = 500;
+    // The length of a day and of a week in ms, and the longest range cached as its own window
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final long WEEK = 7 * DAY;
+    private static final long MAX_CACHED_RANGE = 6 * WEEK;
+    // The number of windows of events kept in memory
+    private static final int CACHED_WINDOWS = 8;
+
+    // The number of threads reading from the database, at least 2 but no more than 4
+    private static final int READ_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private final AppDatabase database;
     private final CalendarDao calendarDao;
-    private final Executor executor = Executors.newSingleThreadExecutor();
+
+    // Reads run on a pool of threads (which WAL allows to run alongside a write) while all writes
+    // run one at a time on the write lane. Interactive writes jump ahead of bulk writes.
+    private final ThreadPoolExecutor readExecutor;
+    private final WriteLane writeLane;
+    // Windows of events expected to be asked for soon are loaded one at a time on a low priority
+    // thread, so they never hold up the reads that are needed now
+    private final ThreadPoolExecutor prefetchExecutor;
+    private final EventWriteQueue interactiveWrites;
+    private final EventWriteQueue bulkWrites;
+    // Purges removed events once they can no longer be restored, and imports and exports files
+    private final TombstonePurger purger;
+    private final IcsTransfer icsTransfer;
+
+    // The events as an event store, for background work that needs them synchronously
+    private final EventStore eventStore;
+    private final ConflictDetector conflictDetector;
+    private final FreeBusyFinder freeBusyFinder;
+
+    // The timings of the operations run and how long tasks wait on the read pool and the write lane
+    private final DataLayerStats stats = new DataLayerStats();
+
+    // The recently loaded windows of events and the ranges of events requested from them, keyed by
+    // the start and end of the range
+    private final EventWindowCache windowCache = new EventWindowCache(CACHED_WINDOWS);
+    private final Map<Pair<Long, Long>, MutableLiveData<List<EventSummary>>> cachedRanges = new HashMap<>();
+
+    // The per-day event counts of each month that has been requested, keyed by year*12 + month
+    private final Map<Integer, MutableLiveData<List<DayEventCount>>> monthEventCounts = new HashMap<>();
 
     private EventRepository(Context context) {
-        AppDatabase database = Room.databaseBuilder(
+        AtomicInteger readThreads = new AtomicInteger();
+        readExecutor = new ThreadPoolExecutor(READ_THREADS, READ_THREADS, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), task -> new Thread(task, "event-reads-" + readThreads.incrementAndGet())) {
+            @Override
+            public void execute(Runnable task) { super.execute(stats.queued("reads", task)); }
+        };
+        readExecutor.allowCoreThreadTimeOut(true);
+        writeLane = new WriteLane(stats);
+        prefetchExecutor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                task -> new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_LOWEST);
+                    task.run();
+                }, "event-prefetch")) {
+            @Override
+            public void execute(Runnable task) { super.execute(stats.queued("prefetch", task)); }
+        };
+        prefetchExecutor.allowCoreThreadTimeOut(true);
+        RoomDatabase.Builder<AppDatabase> builder = Room.databaseBuilder(
                 context.getApplicationContext(),
                 AppDatabase.class,
-                "event_database").build();
+                "event_database")
+                .addMigrations(AppDatabase.MIGRATION_1_2, AppDatabase.MIGRATION_2_3,
+                        AppDatabase.MIGRATION_3_4, AppDatabase.MIGRATION_4_5, AppDatabase.MIGRATION_5_6,
+                        AppDatabase.MIGRATION_6_7, AppDatabase.MIGRATION_7_8, AppDatabase.MIGRATION_8_9)
+                .addCallback(AppDatabase.CREATE_EVENT_BOUNDS)
+                .addCallback(AppDatabase.ENABLE_INCREMENTAL_VACUUM)
+                .setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING)
+                .setQueryExecutor(readExecutor)
+                .setTransactionExecutor(writeLane);
+        // the query callback is called for every statement, so it is only installed when the SQL of
+        // slow operations is wanted
+        if (BuildConfig.DEBUG || BuildConfig.QUERY_STATS) { builder.setQueryCallback(stats::onQuery, Runnable::run); }
+        database = builder.build();
         calendarDao = database.calendarDao();
+        interactiveWrites = new EventWriteQueue(calendarDao, writeLane, WriteLane.Priority.INTERACTIVE,
+                this::onEventsWritten);
+        bulkWrites = new EventWriteQueue(calendarDao, writeLane, WriteLane.Priority.BULK,
+                this::onEventsWritten);
+        eventStore = new RoomEventStore(calendarDao, bulkWrites);
+        conflictDetector = new ConflictDetector(eventStore);
+        freeBusyFinder = new FreeBusyFinder(eventStore);
+        purger = new TombstonePurger(database, writeLane, stats);
+        icsTransfer = new IcsTransfer(calendarDao, writeLane, readExecutor, stats, this::onEventsWritten);
+
+        // Finish converting any event ids left as text by a migration, a chunk at a time so that
+        // interactive writes can go in between the chunks
+        interactiveWrites.setTextIdsRemain(true);
+        bulkWrites.setTextIdsRemain(true);
+        writeLane.execute(this::rewriteTextEventIds, WriteLane.Priority.BULK);
+        // Purge any events removed the last time the app ran, once starting up has settled down
+        purger.start();
+    }
+
+    /**
+     * Rewrite a chunk of the event ids still stored as text, then queue the next chunk as its own
+     * bulk task until there are none left. Runs on the write lane.
+     */
+    private void rewriteTextEventIds() {
+        if (stats.time("rewriteTextEventIds", () -> calendarDao.rewriteTextEventIds(ID_REWRITE_CHUNK_SIZE)) > 0) {
+            writeLane.execute(this::rewriteTextEventIds, WriteLane.Priority.BULK);
+        } else {
+            interactiveWrites.setTextIdsRemain(false);
+            bulkWrites.setTextIdsRemain(false);
+        }
     }
 
     // The public methods that simply call the DAO methods
     public LiveData<List<Event>> getAllEvents() { return calendarDao.getAllEvents(); }
     public LiveData<Event> getEventById(UUID id) { return calendarDao.getEventById(id); }
-    public LiveData<List<Event>> getEventsBetween(Date start, Date end) { 
-        return calendarDao.getEventsBetween(start, end); 
+
+    // The public methods that call the DAO methods and then expand repeating events into their
+    // occurrences within the range
+    public LiveData<List<Event>> getEventsBetween(Date start, Date end) {
+        return expandBetween(calendarDao.getEventsBetween(start, end), start.getTime(), end.getTime());
+    }
+    public LiveData<List<Event>> getEventsOnDay(Date date) {
+        return expandBetween(calendarDao.getEventsOnDay(date), date.getTime(), date.getTime() + DAY);
+    }
+    public LiveData<List<Event>> getEventsOfTypeBetween(EventType type, Date start, Date end) {
+        return expandBetween(calendarDao.getEventsOfTypeBetween(type, start, end), start.getTime(), end.getTime());
     }
-    public LiveData<List<Event>> getEventsOnDay(Date date) { return calendarDao.getEventsOnDay(date); }
 
-    // Insert, update, and remove methods
-    public void addEvent(Event event) {
-        executor.execute(() -> {
-            calendarDao.addEvent(event);
-        });
+    /**
+     * @return live-data of the occurrences of the given events within a range of time
+     */
+    private static LiveData<List<Event>> expandBetween(LiveData<List<Event>> events, long start, long end) {
+        return Transformations.map(events, list -> Event.expandBetween(list, start, end));
+    }
+
+    /**
+     * Get summaries of all events that overlap the range of date-times given, ordered by their
+     * start time. If the range is within a window of events cached in memory, the summaries are
+     * available immediately. Otherwise they are loaded in the background and, if the range is not
+     * too long, kept as a new window. Must be called on the main thread.
+     * @param start the start date
+     * @param end the end date
+     * @return live-data view of a list of summaries of all events between those dates
+     */
+    public LiveData<List<EventSummary>> getEventSummariesBetween(Date start, Date end) {
+        long from = start.getTime(), to = end.getTime();
+        return getCachedEventSummaries(from, to, from, to - from <= MAX_CACHED_RANGE ? to : -1);
+    }
+
+    /**
+     * Get summaries of all events that overlap the 24 hour period starting at the given date,
+     * ordered by their start time. The whole week around the day is loaded and kept in memory so
+     * other days that week are available immediately. Must be called on the main thread.
+     * @param date the date at the beginning of the 24 hour period
+     * @return live-data view of a list of summaries of all events that overlap the 24 hours
+     *         starting at the given date
+     */
+    public LiveData<List<EventSummary>> getEventSummariesOnDay(Date date) {
+        long week = DateUtils.getStartOfWeek(date.getTime());
+        // the end of the window is padded so that it always covers the whole last day of the week
+        LiveData<List<EventSummary>> summaries = getCachedEventSummaries(date.getTime(), date.getTime() + DAY, week, week + WEEK + DAY);
+        // the next day picked is most likely nearby, so have the weeks on either side ready too,
+        // starting with the one closer to the day
+        boolean laterHalf = date.getTime() - week >= WEEK / 2;
+        prefetchWeek(DateUtils.addDays(week, laterHalf ? 7 : -7));
+        prefetchWeek(DateUtils.addDays(week, laterHalf ? -7 : 7));
+        return summaries;
+    }
+
+    /**
+     * Get summaries of all events that overlap the week containing the given date, ordered by
+     * their start time. This is the same window of events that getEventSummariesOnDay() loads for
+     * each day of the week, so it is answered from memory if any day of the week has been shown.
+     * The weeks before and after are loaded into memory in the background so that moving to either
+     * of them does not have to wait for the database. Must be called on the main thread.
+     * @param date any date within the week
+     * @return live-data view of a list of summaries of all events that overlap the week
+     */
+    public LiveData<List<EventSummary>> getEventSummariesInWeek(Date date) {
+        long week = DateUtils.getStartOfWeek(date.getTime());
+        prefetchWeek(DateUtils.addDays(week, -7));
+        prefetchWeek(DateUtils.addDays(week, 7));
+        return getCachedEventSummaries(week, DateUtils.addDays(week, 7), week, week + WEEK + DAY);
+    }
+
+    /**
+     * Load the window of events for a week into memory on the prefetch lane, unless it is already.
+     * The window is only kept for a short time unless it is used.
+     * @param week the start of the week
+     */
+    private void prefetchWeek(long week) {
+        if (windowCache.contains(week, week + WEEK)) { return; }
+        prefetchExecutor.execute(() -> stats.time("prefetchWeek", () -> {
+            long version;
+            List<EventSummary> window;
+            do {
+                if (windowCache.contains(week, week + WEEK)) { return null; }
+                version = windowCache.getVersion();
+                window = loadEventSummariesBetween(week, week + WEEK + DAY);
+            } while (!windowCache.putPrefetched(week, week + WEEK + DAY, window, version));
+            return window;
+        }));
+    }
+
+    /**
+     * Get the events as an event store. Its methods block, so it must only be used in the
+     * background. Writes through it are bulk writes.
+     * @return the event store backed by the database
+     */
+    public EventStore getEventStore() { return eventStore; }
+
+    /**
+     * Find the events whose times conflict with a time in the background.
+     * @param id the id of the event being checked (whose own occurrences are not conflicts), or null
+     * @param start the start of the time
+     * @param end the end of the time, or null for an assignment (which never conflicts)
+     * @return a future of the conflicting events (or occurrences) ordered by start time, which can
+     *         be cancelled if the time changes again
+     */
+    public ListenableFuture<List<Event>> findConflicts(UUID id, Date start, Date end) {
+        long from = start.getTime(), to = end == null ? from : end.getTime();
+        ListenableFutureTask<List<Event>> task = ListenableFutureTask.create(() ->
+                stats.time("findConflicts", () -> conflictDetector.findConflicts(id, from, to)));
+        readExecutor.execute(task);
+        return task;
+    }
+
+    /**
+     * Find every pair of events whose times conflict within the week containing a date, in the
+     * background.
+     * @param date any date within the week
+     * @return a future of the conflicts ordered by the start of the later event of each
+     */
+    public ListenableFuture<List<ConflictDetector.Conflict>> findConflictsInWeek(Date date) {
+        long week = DateUtils.getStartOfWeek(date.getTime());
+        ListenableFutureTask<List<ConflictDetector.Conflict>> task = ListenableFutureTask.create(() ->
+                stats.time("findConflictsInWeek", () -> conflictDetector.findConflictsBetween(week, DateUtils.addDays(week, 7))));
+        readExecutor.execute(task);
+        return task;
+    }
+
+    /**
+     * Find the times within a range that no event is using, in the background.
+     * @param start the start of the range
+     * @param end the end of the range
+     * @param minMinutes the shortest free time to find in minutes
+     * @return a future of the free slots in order
+     */
+    public ListenableFuture<List<FreeBusyFinder.Slot>> findFreeSlots(Date start, Date end, int minMinutes) {
+        long from = start.getTime(), to = end.getTime(), minLength = minMinutes * 60 * 1000L;
+        ListenableFutureTask<List<FreeBusyFinder.Slot>> task = ListenableFutureTask.create(() ->
+                stats.time("findFreeSlots", () -> freeBusyFinder.findFree(from, to, minLength)));
+        readExecutor.execute(task);
+        return task;
+    }
+
+    /**
+     * @return the counts of requests for events that were and were not answered from memory
+     */
+    public CacheStats getWindowCacheStats() { return windowCache.getStats(); }
+
+    /**
+     * @return the counts of prefetched windows of events that were used and that were dropped
+     *         without being used
+     */
+    public CacheStats getPrefetchStats() { return windowCache.getPrefetchStats(); }
+
+    /**
+     * Get the live-data for a range of event summaries, answering from the window cache if
+     * possible or loading the given window otherwise.
+     * @param start the start of the range in ms
+     * @param end the end of the range in ms
+     * @param windowStart the start of the window to load if the range is not cached
+     * @param windowEnd the end of the window to load, or -1 to load just the range without caching
+     * @return live-data view of the summaries
+     */
+    private LiveData<List<EventSummary>> getCachedEventSummaries(long start, long end, long windowStart, long windowEnd) {
+        Pair<Long, Long> range = new Pair<>(start, end);
+        MutableLiveData<List<EventSummary>> summaries;
+        synchronized (cachedRanges) {
+            summaries = cachedRanges.get(range);
+            if (summaries == null) {
+                // forget the ranges no longer observed, so that viewing one range after another
+                // without writing anything does not keep growing the map
+                Iterator<MutableLiveData<List<EventSummary>>> it = cachedRanges.values().iterator();
+                while (it.hasNext()) {
+                    if (!it.next().hasObservers()) { it.remove(); }
+                }
+                summaries = new MutableLiveData<>();
+                cachedRanges.put(range, summaries);
+            }
+        }
+        List<EventSummary> cached = windowCache.get(start, end);
+        if (cached != null) {
+            summaries.setValue(cached);
+        } else {
+            MutableLiveData<List<EventSummary>> loading = summaries;
+            readExecutor.execute(() -> loading.postValue(loadEventSummaries(start, end, windowStart, windowEnd)));
+        }
+        return summaries;
+    }
+
+    /**
+     * Load a window of event summaries from the database into the cache and return those within a
+     * range of it. If events are written while loading, the window is loaded again. Must be run in
+     * the background.
+     * @param start the start of the range in ms
+     * @param end the end of the range in ms
+     * @param windowStart the start of the window to load
+     * @param windowEnd the end of the window to load, or -1 to load just the range without caching
+     * @return the summaries of events within the range
+     */
+    private List<EventSummary> loadEventSummaries(long start, long end, long windowStart, long windowEnd) {
+        if (windowEnd < 0) { return loadEventSummariesBetween(start, end); }
+        while (true) {
+            long version = windowCache.getVersion();
+            List<EventSummary> window = loadEventSummariesBetween(windowStart, windowEnd);
+            if (windowCache.put(windowStart, windowEnd, window, version)) {
+                return windowCache.peek(start, end);
+            }
+        }
+    }
+
+    /**
+     * Load summaries of all events that overlap a range of time from the database, including each
+     * occurrence of repeating events, ordered by start time. Must be run in the background.
+     * @param start the start of the range in ms
+     * @param end the end of the range in ms
+     * @return the summaries of events within the range
+     */
+    private List<EventSummary> loadEventSummariesBetween(long start, long end) {
+        return stats.time("loadEventSummariesBetween", () -> loadAndExpandEventSummaries(start, end));
+    }
+
+    /**
+     * Does the work of loadEventSummariesBetween without timing it.
+     */
+    private List<EventSummary> loadAndExpandEventSummaries(long start, long end) {
+        List<EventSummary> summaries = calendarDao.loadEventSummariesBetween(new Date(start), new Date(end));
+        List<Event> repeating = calendarDao.loadRepeatingEventsBetween(new Date(start), new Date(end));
+        if (repeating.isEmpty()) { return summaries; }
+        for (Event occurrence : Event.expandBetween(repeating, start, end)) {
+            summaries.add(EventSummary.of(occurrence));
+        }
+        Collections.sort(summaries, (a, b) -> a.startTime.compareTo(b.startTime));
+        return summaries;
+    }
+
+    /**
+     * Bring the cached windows of events up to date after a write and give the ranges still being
+     * observed their new events. Ranges that are no longer observed are forgotten. Runs on the
+     * write lane.
+     * @param written the events that were added or updated
+     * @param removed the events that were removed
+     */
+    private void onEventsWritten(List<Event> written, List<Event> removed) {
+        if (!removed.isEmpty()) { purger.onEventsRemoved(); }
+        invalidateEventCounts();
+        windowCache.update(written, removed);
+        List<Map.Entry<Pair<Long, Long>, MutableLiveData<List<EventSummary>>>> observed = new ArrayList<>();
+        synchronized (cachedRanges) {
+            Iterator<Map.Entry<Pair<Long, Long>, MutableLiveData<List<EventSummary>>>> it = cachedRanges.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Pair<Long, Long>, MutableLiveData<List<EventSummary>>> entry = it.next();
+                if (entry.getValue().hasObservers()) { observed.add(entry); }
+                else { it.remove(); }
+            }
+        }
+        for (Map.Entry<Pair<Long, Long>, MutableLiveData<List<EventSummary>>> entry : observed) {
+            long start = entry.getKey().first, end = entry.getKey().second;
+            List<EventSummary> cached = windowCache.peek(start, end);
+            if (cached != null) {
+                entry.getValue().postValue(cached);
+            } else {
+                readExecutor.execute(() -> entry.getValue().postValue(loadEventSummariesBetween(start, end)));
+            }
+        }
+    }
+
+    /**
+     * Search the names and descriptions of all events in the background. Each word of the text is
+     * matched as a prefix of a word in the event, and all words must match. The returned future can
+     * be cancelled to skip a search that is no longer needed.
+     * @param text the text to search for, as typed by the user
+     * @param limit the maximum number of events to find
+     * @return future of summaries of the best matching events, best first
+     */
+    public ListenableFuture<List<EventSummary>> searchEvents(String text, int limit) {
+        StringBuilder query = new StringBuilder();
+        for (String word : text.split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) { query.append(word).append("* "); }
+        }
+        ListenableFutureTask<List<EventSummary>> task = ListenableFutureTask.create(() ->
+                query.length() == 0 ? Collections.emptyList()
+                        : stats.time("searchEvents", () -> calendarDao.search(query.toString().trim(), limit)));
+        database.getQueryExecutor().execute(task);
+        return task;
+    }
+
+    /**
+     * Get a paged view of summaries of all events ordered by start time, initially positioned at
+     * the given date.
+     * Pages are loaded in either direction as the list is scrolled and pages far from what is
+     * visible are dropped, so any number of events can be listed.
+     * @param date the date to start the list at
+     * @return live-data of the pages of event summaries
+     */
+    public LiveData<PagingData<EventSummary>> getEventSummariesPaged(Date date) {
+        Pager<Long, EventSummary> pager = new Pager<>(
+                new PagingConfig(PAGE_SIZE, PAGE_SIZE / 2, false, PAGE_SIZE, PAGE_SIZE * 4),
+                date.getTime(),
+                () -> new EventPagingSource(database, calendarDao));
+        return PagingLiveData.getLiveData(pager);
+    }
+
+    /**
+     * Get the number of events on each busy day of the month containing the given date. The counts
+     * for a month are loaded with a single query and then cached until an event is written.
+     * @param date any date within the month
+     * @return live-data view of the event counts for each busy day of the month
+     */
+    public LiveData<List<DayEventCount>> getEventCountsInMonth(Date date) {
+        int[] day = DateUtils.getYearMonthDay(date);
+        int month = day[0] * 12 + day[1];
+        MutableLiveData<List<DayEventCount>> counts;
+        synchronized (monthEventCounts) {
+            counts = monthEventCounts.get(month);
+            if (counts != null) { return counts; }
+            counts = new MutableLiveData<>();
+            monthEventCounts.put(month, counts);
+        }
+        MutableLiveData<List<DayEventCount>> newCounts = counts;
+        readExecutor.execute(() -> loadEventCounts(month, newCounts));
+        return counts;
+    }
+
+    /**
+     * Load the per-day event counts for a month from the database. Must be run in the background.
+     * @param month the month as year*12 + month
+     * @param counts where to post the loaded counts
+     */
+    private void loadEventCounts(int month, MutableLiveData<List<DayEventCount>> counts) {
+        long start = DateUtils.getDate(month / 12, month % 12, 1).getTime();
+        long end = DateUtils.getDate(month / 12, month % 12 + 1, 1).getTime();
+        counts.postValue(stats.time("loadEventCounts",
+                () -> countEventsByDay(loadAndExpandEventSummaries(start, end), start, end)));
+    }
+
+    /**
+     * Count the events on each day of a range, along with the most common type of event on each
+     * day. An event that lasts several days is counted on every day it covers, and an event that
+     * ends exactly at midnight does not count on the day that begins then. Days without any events
+     * are not included.
+     * @param events the events (and occurrences of repeating events) that overlap the range
+     * @param start the start of the range in ms, at midnight
+     * @param end the end of the range in ms, at midnight (exclusive)
+     * @return the event counts for each busy day in the range, ordered by day
+     */
+    private static List<DayEventCount> countEventsByDay(List<EventSummary> events, long start, long end) {
+        TreeMap<Long, int[]> typeCounts = new TreeMap<>();
+        int types = EventType.values().length;
+        for (EventSummary event : events) {
+            long eventStart = event.startTime.getTime();
+            long eventEnd = event.endTime == null ? eventStart : Math.max(eventStart, event.endTime.getTime() - 1);
+            long last = Math.min(DateUtils.getStartOfDay(eventEnd), end - 1);
+            for (long day = DateUtils.getStartOfDay(Math.max(eventStart, start)); day <= last; day = DateUtils.addDays(day, 1)) {
+                int[] dayCounts = typeCounts.get(day);
+                if (dayCounts == null) { typeCounts.put(day, dayCounts = new int[types]); }
+                dayCounts[event.type.ordinal()]++;
+            }
+        }
+        List<DayEventCount> counts = new ArrayList<>(typeCounts.size());
+        for (Map.Entry<Long, int[]> entry : typeCounts.entrySet()) {
+            DayEventCount count = new DayEventCount();
+            count.day = new Date(entry.getKey());
+            int[] dayCounts = entry.getValue();
+            for (int type = 0; type < types; type++) {
+                count.eventCount += dayCounts[type];
+                if (dayCounts[type] > count.dominantTypeCount) {
+                    count.dominantType = EventType.values()[type];
+                    count.dominantTypeCount = dayCounts[type];
+                }
+            }
+            counts.add(count);
+        }
+        return counts;
+    }
+
+    /**
+     * Invalidate the cached per-day event counts after a write. Months that are no longer being
+     * observed are dropped from the cache while the rest are reloaded.
+     */
+    private void invalidateEventCounts() {
+        List<Map.Entry<Integer, MutableLiveData<List<DayEventCount>>>> observed = new ArrayList<>();
+        synchronized (monthEventCounts) {
+            Iterator<Map.Entry<Integer, MutableLiveData<List<DayEventCount>>>> it = monthEventCounts.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Integer, MutableLiveData<List<DayEventCount>>> entry = it.next();
+                if (entry.getValue().hasObservers()) { observed.add(entry); }
+                else { it.remove(); }
+            }
+        }
+        for (Map.Entry<Integer, MutableLiveData<List<DayEventCount>>> entry : observed) {
+            readExecutor.execute(() -> loadEventCounts(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    // Insert, update, and remove methods, which are queued and written in batches as interactive
+    // writes
+    public ListenableFuture<Void> addEvent(Event event) { return interactiveWrites.add(event); }
+    public ListenableFuture<Void> updateEvent(Event event) { return interactiveWrites.update(event); }
+
+    /**
+     * Update only some of the fields of an event, as a targeted UPDATE of just those columns.
+     * Nothing is written if no fields are given.
+     * @param event the event with the new values of the fields
+     * @param fields the fields to update, as CalendarDao.FIELD_ bits
+     * @return a future that completes once the event has been written
+     */
+    public ListenableFuture<Void> updateEventFields(Event event, int fields) {
+        if (fields == 0) { return Futures.immediateFuture(null); }
+        return interactiveWrites.updateFields(event, fields);
     }
-    public void updateEvent(Event event) {
-        executor.execute(() -> {
-            calendarDao.updateEvent(event);
+
+    /**
+     * Remove an event. It is only marked as deleted, so the remove can be undone with
+     * restoreEvent() for TombstonePurger.TOMBSTONE_LIFETIME, after which it is purged in the
+     * background.
+     * @param event the event to remove
+     * @return a future that completes once the event has been removed
+     */
+    public ListenableFuture<Void> removeEvent(Event event) { return interactiveWrites.remove(event); }
+    public ListenableFuture<Void> removeEvent(UUID id) { return interactiveWrites.remove(eventWithId(id)); }
+
+    /**
+     * Restore an event that was removed, if it has not been purged yet.
+     * @param id the id of the event
+     * @return a future that completes once the event has been restored
+     */
+    public ListenableFuture<Void> restoreEvent(UUID id) { return interactiveWrites.restore(eventWithId(id)); }
+
+    /**
+     * Remove a single occurrence of a repeating event by adding it as an exception of the event, so
+     * the rest of the series is kept. The remove can be undone with restoreOccurrence().
+     * @param id the id of the repeating event
+     * @param start the start time of the occurrence
+     * @return a future that completes once the exception has been written
+     */
+    public ListenableFuture<Void> removeOccurrence(UUID id, Date start) { return writeException(id, start, true); }
+
+    /**
+     * Bring back an occurrence of a repeating event removed by removeOccurrence().
+     * @param id the id of the repeating event
+     * @param start the start time of the occurrence
+     * @return a future that completes once the exception has been removed
+     */
+    public ListenableFuture<Void> restoreOccurrence(UUID id, Date start) { return writeException(id, start, false); }
+
+    /**
+     * Add or remove an exception of a repeating event as a targeted UPDATE on the write lane, so
+     * that no other field of the event is written, then bring the cached windows up to date with
+     * the changed event.
+     */
+    private ListenableFuture<Void> writeException(UUID id, Date start, boolean add) {
+        ListenableFutureTask<Void> task = ListenableFutureTask.create(() -> {
+            List<Event> written = stats.time(add ? "removeOccurrence" : "restoreOccurrence", () ->
+                    database.runInTransaction(() -> {
+                        if (add) { calendarDao.addRecurrenceException(id, start); }
+                        else { calendarDao.removeRecurrenceException(id, start); }
+                        return calendarDao.loadEventsById(Collections.singletonList(id));
+                    }));
+            onEventsWritten(written, Collections.emptyList());
+            return null;
         });
+        writeLane.execute(task, WriteLane.Priority.INTERACTIVE);
+        return task;
+    }
+
+    /**
+     * @return a new event with the given id, for writes that only need the id
+     */
+    private static Event eventWithId(UUID id) {
+        Event event = new Event();
+        event.id = id;
+        return event;
     }
-    public void removeEvent(Event event) {
-        executor.execute(() -> {
-            calendarDao.removeEvent(event);
+
+    /**
+     * Add many events as a bulk write. Bulk writes wait for any interactive writes to finish first.
+     * @param events the events to add
+     * @return a future that completes once all of the events have been written
+     */
+    public ListenableFuture<Void> addEvents(List<Event> events) {
+        if (events.isEmpty()) { return Futures.immediateFuture(null); }
+        return bulkWrites.addAll(events);
+    }
+
+    /**
+     * Import the events of an iCalendar (.ics) file in the background as bulk writes. Events that
+     * are already on the calendar are skipped.
+     * @param input the contents of the file, which is closed once the import is done
+     * @param progress told about the progress of the import, in the background
+     * @return a future of the numbers of events imported and skipped, which can be cancelled to
+     *         stop the import
+     */
+    public ListenableFuture<IcsImporter.Result> importEvents(InputStream input, IcsImporter.ProgressListener progress) {
+        return icsTransfer.importEvents(input, progress);
+    }
+
+    /**
+     * Export all events to an iCalendar (.ics) file in the background. The events are streamed
+     * from the database, so any number of events can be exported.
+     * @param output where to write the file, which is closed once done
+     * @return a future of the number of events exported
+     */
+    public ListenableFuture<Integer> exportEvents(OutputStream output) { return icsTransfer.exportEvents(output); }
+
+    /**
+     * @return the timings of the operations run by the repository and of its executors
+     */
+    public DataLayerStats getStats() { return stats; }
+
+    /**
+     * Write the timings of the operations run by the repository and of its executors, along with
+     * the hit rates of the window cache and of prefetching, to a file in the background.
+     * @param file the file to write
+     * @return a future completed once the file is written
+     */
+    public ListenableFuture<File> dumpStats(File file) {
+        ListenableFutureTask<File> task = ListenableFutureTask.create(() -> {
+            try (Writer writer = new BufferedWriter(new FileWriter(file))) {
+                stats.dump(writer);
+                CacheStats cache = getWindowCacheStats(), prefetch = getPrefetchStats();
+                writer.write(String.format("Window cache: hits=%d misses=%d hitRate=%.2f\n",
+                        cache.getHits(), cache.getMisses(), cache.getHitRate()));
+                writer.write(String.format("Prefetched windows: used=%d unused=%d hitRate=%.2f\n",
+                        prefetch.getHits(), prefetch.getMisses(), prefetch.getHitRate()));
+            }
+            return file;
         });
+        readExecutor.execute(task);
+        return task;
+    }
+
+    /**
+     * Open the database and load the events of today into memory so that they are ready by the
+     * time the first list asks for them. Runs in the background right after the repository is
+     * created.
+     */
+    private void prewarm() {
+        database.getOpenHelper().getWritableDatabase();
+        StartupTrace.record(StartupTrace.Milestone.DATABASE_OPEN);
+        long today = DateUtils.getStartOfDay(System.currentTimeMillis());
+        long week = DateUtils.getStartOfWeek(today);
+        loadEventSummaries(today, today + DAY, week, week + WEEK + DAY);
+        StartupTrace.record(StartupTrace.Milestone.FIRST_DAY_LOADED);
     }
 
-    // The single instance of the repository
-    private static EventRepository INSTANCE;
+    // The single instance of the repository, created in the background after initialize is
+    // called, or on first use if that is sooner
+    private static volatile EventRepository INSTANCE;
+    private static Context appContext;
     public static EventRepository get() {
-        if (INSTANCE == null) { throw new IllegalStateException("EventRepository must be initialized"); }
-        return INSTANCE;
+        EventRepository repository = INSTANCE;
+        if (repository == null) {
+            synchronized (EventRepository.class) {
+                if (appContext == null) { throw new IllegalStateException("EventRepository must be initialized"); }
+                if (INSTANCE == null) { INSTANCE = new EventRepository(appContext); }
+                repository = INSTANCE;
+            }
+        }
+        return repository;
     }
+
+    /**
+     * Start creating the repository in the background. Nothing is done on the calling thread, so
+     * this can be called while starting the app without delaying its first frame.
+     * @param context any context of the app
+     */
     public static void initialize(Context context) {
-        if (INSTANCE == null) {
-            INSTANCE = new EventRepository(context);
+        synchronized (EventRepository.class) {
+            if (appContext != null) { return; }
+            appContext = context.getApplicationContext();
         }
+        new Thread(() -> get().prewarm(), "event-repository-init").start();
     }
 }
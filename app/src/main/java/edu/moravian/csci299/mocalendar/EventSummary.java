@@ -0,0 +1,86 @@
+package edu.moravian.csci299.mocalendar;
+
+import androidx.annotation.NonNull;
+
+import java.util.Date;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * A summary of an event with just the information needed to show it in a list. The description is
+ * cut down to a short preview (see CalendarDao.SUMMARY_COLUMNS) so that long descriptions are not
+ * loaded for every event listed. The full event can be loaded by its id when it is opened.
+ */
+public class EventSummary {
+    /**
+     * The id of the event. Left unset until Room or of() fills it in, since generating a random id
+     * for every row loaded would only be thrown away.
+     */
+    @NonNull
+    public UUID id;
+    /**
+     * Start time for the event. If the endTIme is null, this represents the due date.
+     */
+    @NonNull
+    public Date startTime = new Date();
+    /**
+     * The ending time, or null for an assignment.
+     */
+    public Date endTime = null;
+    /**
+     * Name of the event.
+     */
+    @NonNull
+    public String name = "";
+    /**
+     * The type of the event.
+     */
+    @NonNull
+    public EventType type = EventType.GENERIC;
+    /**
+     * The start of the description of the event.
+     */
+    @NonNull
+    public String description = "";
+    /**
+     * If this is one occurrence of a repeating event, which shares its id with the other
+     * occurrences.
+     */
+    public boolean repeating;
+
+    /**
+     * The length of the preview of the description, matching CalendarDao.SUMMARY_COLUMNS.
+     */
+    public static final int DESCRIPTION_PREVIEW_LENGTH = 100;
+
+    /**
+     * Make a summary of a full event.
+     * @param event the event to summarize
+     * @return the summary of the event
+     */
+    public static EventSummary of(Event event) {
+        EventSummary summary = new EventSummary();
+        summary.id = event.id;
+        summary.startTime = event.startTime;
+        summary.endTime = event.endTime;
+        summary.name = event.name;
+        summary.type = event.type;
+        String description = event.description;
+        if (description.codePointCount(0, description.length()) > DESCRIPTION_PREVIEW_LENGTH) {
+            description = description.substring(0, description.offsetByCodePoints(0, DESCRIPTION_PREVIEW_LENGTH));
+        }
+        summary.description = description;
+        summary.repeating = event.recurrence != null && !event.recurrence.isEmpty();
+        return summary;
+    }
+
+    /**
+     * @param other another summary
+     * @return true if the other summary shows exactly the same information as this one
+     */
+    public boolean hasSameContents(EventSummary other) {
+        return id.equals(other.id) && startTime.equals(other.startTime) &&
+                Objects.equals(endTime, other.endTime) && name.equals(other.name) &&
+                type == other.type && description.equals(other.description) && repeating == other.repeating;
+    }
+}
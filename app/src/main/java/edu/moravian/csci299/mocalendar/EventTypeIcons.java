@@ -0,0 +1,38 @@
+package edu.moravian.csci299.mocalendar;
+
+import androidx.annotation.DrawableRes;
+
+/**
+ * The icon of each type of event. These are kept separate from EventType since it is part of the
+ * core library which has no access to the resources of the app.
+ *
+ * NOTE: Any type added to EventType needs an icon here.
+ */
+public class EventTypeIcons {
+    /** The drawable ids of the icons indexed by the ordinal of their type */
+    private static final int[] ICONS = new int[EventType.values().length];
+    static {
+        ICONS[EventType.GENERIC.ordinal()] = R.drawable.event;
+        ICONS[EventType.ASSIGNMENT.ordinal()] = R.drawable.assignment;
+        ICONS[EventType.CLASS.ordinal()] = R.drawable.school;
+        ICONS[EventType.LAB.ordinal()] = R.drawable.science;
+        ICONS[EventType.EXAM.ordinal()] = R.drawable.quiz;
+        ICONS[EventType.ESSAY.ordinal()] = R.drawable.essay;
+        ICONS[EventType.PROGRAMMING.ordinal()] = R.drawable.code;
+        ICONS[EventType.READING.ordinal()] = R.drawable.book;
+        ICONS[EventType.CLUB.ordinal()] = R.drawable.groups;
+        ICONS[EventType.OFFICE_HOURS.ordinal()] = R.drawable.meeting_room;
+        ICONS[EventType.ATHLETIC_PRACTICE.ordinal()] = R.drawable.sports_soccer;
+        ICONS[EventType.MUSIC_PRACTICE.ordinal()] = R.drawable.music_note;
+        ICONS[EventType.COMPETITION.ordinal()] = R.drawable.trophy;
+        ICONS[EventType.PRESENTATION.ordinal()] = R.drawable.present;
+        ICONS[EventType.HOLIDAY.ordinal()] = R.drawable.holiday;
+    }
+
+    /**
+     * @param type the type of event
+     * @return the drawable id of the icon for that type
+     */
+    @DrawableRes
+    public static int of(EventType type) { return ICONS[type.ordinal()]; }
+}
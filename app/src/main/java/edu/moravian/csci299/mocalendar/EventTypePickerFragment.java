@@ -96,7 +96,7 @@ public class EventTypePickerFragment extends DialogFragment {
 
             // set the icon and name
             EventType type = EVENT_TYPES[position];
-            ((ImageView)view.findViewById(R.id.eventTypeIcon)).setImageResource(type.iconResourceId);
+            ((ImageView)view.findViewById(R.id.eventTypeIcon)).setImageResource(EventTypeIcons.of(type));
             ((TextView)view.findViewById(R.id.eventTypeName)).setText(type.simpleName);
 
             // returns the view
@@ -0,0 +1,248 @@
+package edu.moravian.csci299.mocalendar;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * An in-memory cache of the event summaries within recently loaded windows of time (such as the
+ * week around a day being viewed). Each window holds every event overlapping it sorted by start
+ * time, so any range of time within a window can be answered without going to the database. When
+ * there are too many windows, the least recently used one is dropped.
+ *
+ * Windows can also be prefetched before they are asked for (see putPrefetched()). A prefetched
+ * window that is not used within PREFETCH_LIFETIME is dropped, so guesses that were wrong do not
+ * push out windows that are being used. How many prefetched windows were used before being dropped
+ * is counted separately from the hits and misses of get().
+ *
+ * Writes must be given to update() so that the cached windows stay correct. Each update changes the
+ * version of the cache, which lets a window that was being loaded during a write be detected as
+ * stale and loaded again (see put()).
+ */
+public class EventWindowCache {
+    // How long a prefetched window is kept without being used, in ms
+    private static final long PREFETCH_LIFETIME = 2 * 60 * 1000;
+
+    /** The events overlapping a window of time */
+    private static class Window {
+        final long start, end;
+        final ArrayList<EventSummary> events;  // sorted by start time
+        long maxDuration;  // the longest duration of any of the events, in ms
+        long expires;  // when a prefetched window that has not been used is dropped, or 0 if it has been
+
+        Window(long start, long end, List<EventSummary> events) {
+            this.start = start;
+            this.end = end;
+            this.events = new ArrayList<>(events);
+            for (EventSummary event : events) { maxDuration = Math.max(maxDuration, duration(event)); }
+        }
+
+        /** @return true if this window contains the given range of time */
+        boolean contains(long start, long end) { return this.start <= start && end <= this.end; }
+
+        /** @return the events overlapping the given range of time within this window */
+        List<EventSummary> between(long start, long end) {
+            List<EventSummary> found = new ArrayList<>();
+            // no event starting before this could last long enough to reach the start of the range
+            for (int i = firstStartingAtOrAfter(start - maxDuration); i < events.size(); i++) {
+                EventSummary event = events.get(i);
+                if (event.startTime.getTime() >= end) { break; }
+                if (EventWindowCache.overlaps(event, start, end)) { found.add(event); }
+            }
+            return found;
+        }
+
+        /** Add an event keeping the events sorted by start time */
+        void insert(EventSummary event) {
+            events.add(firstStartingAtOrAfter(event.startTime.getTime() + 1), event);
+            maxDuration = Math.max(maxDuration, duration(event));
+        }
+
+        /** Remove the event with the given id, including all of its occurrences, from this window */
+        void remove(UUID id) {
+            for (Iterator<EventSummary> it = events.iterator(); it.hasNext(); ) {
+                if (it.next().id.equals(id)) { it.remove(); }
+            }
+        }
+
+        /** @return the index of the first event starting at or after the given time */
+        int firstStartingAtOrAfter(long time) {
+            int low = 0, high = events.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (events.get(mid).startTime.getTime() < time) { low = mid + 1; }
+                else { high = mid; }
+            }
+            return low;
+        }
+    }
+
+    private final Map<Long, Window> windows;
+    private long version;
+    private final CacheStats stats = new CacheStats();
+    private final CacheStats prefetchStats = new CacheStats();
+
+    /**
+     * Create a new empty cache.
+     * @param maxWindows the most windows to keep at once
+     */
+    public EventWindowCache(int maxWindows) {
+        windows = new LinkedHashMap<Long, Window>(maxWindows + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Window> eldest) {
+                if (size() <= maxWindows) { return false; }
+                if (eldest.getValue().expires != 0) { prefetchStats.miss(); }
+                return true;
+            }
+        };
+    }
+
+    /** @return the counts of hits and misses of get() */
+    public CacheStats getStats() { return stats; }
+
+    /**
+     * @return the counts of prefetched windows that were used (hits) and that were dropped without
+     *         being used (misses)
+     */
+    public CacheStats getPrefetchStats() { return prefetchStats; }
+
+    /**
+     * Get the events overlapping a range of time if a cached window contains that range. This is
+     * counted as a hit or a miss.
+     * @param start the start of the range in ms
+     * @param end the end of the range in ms (exclusive)
+     * @return the events overlapping the range, sorted by start time, or null if not cached
+     */
+    public synchronized List<EventSummary> get(long start, long end) {
+        Window found = find(start, end);
+        if (found == null) {
+            stats.miss();
+            return null;
+        }
+        stats.hit();
+        if (found.expires != 0) {
+            found.expires = 0;
+            prefetchStats.hit();
+        }
+        windows.get(found.start);  // mark it as recently used
+        return found.between(start, end);
+    }
+
+    /**
+     * Same as get() but not counted as a hit or a miss.
+     */
+    public synchronized List<EventSummary> peek(long start, long end) {
+        Window found = find(start, end);
+        if (found == null) { return null; }
+        windows.get(found.start);  // mark it as recently used
+        return found.between(start, end);
+    }
+
+    /**
+     * Check if a range is cached without counting it or marking its window as used.
+     * @param start the start of the range in ms
+     * @param end the end of the range in ms (exclusive)
+     * @return true if a cached window contains the range
+     */
+    public synchronized boolean contains(long start, long end) { return find(start, end) != null; }
+
+    /**
+     * Find the window containing a range, first dropping prefetched windows that have expired.
+     * @return the window, or null if there is none
+     */
+    private Window find(long start, long end) {
+        long now = System.currentTimeMillis();
+        Window found = null;
+        for (Iterator<Window> it = windows.values().iterator(); it.hasNext(); ) {
+            Window window = it.next();
+            if (window.expires != 0 && window.expires < now) {
+                it.remove();
+                prefetchStats.miss();
+            } else if (found == null && window.contains(start, end)) {
+                found = window;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return the current version of the cache, to be given to put() after loading a window
+     */
+    public synchronized long getVersion() { return version; }
+
+    /**
+     * Cache a window of events loaded from the database. If the cache has been updated since the
+     * events were loaded, they may be out of date and are not cached.
+     * @param start the start of the window in ms
+     * @param end the end of the window in ms (exclusive)
+     * @param events all of the events overlapping the window, sorted by start time
+     * @param version the version of the cache from before the events were loaded
+     * @return true if the window was cached, false if it needs to be loaded again
+     */
+    public synchronized boolean put(long start, long end, List<EventSummary> events, long version) {
+        if (version != this.version) { return false; }
+        windows.put(start, new Window(start, end, events));
+        return true;
+    }
+
+    /**
+     * Cache a window of events that was loaded before being asked for. It is kept like any other
+     * window once it is used by get(), but is dropped if it is not used soon. Nothing is cached if
+     * the cache has been updated since the events were loaded or if the window is already cached.
+     * @param start the start of the window in ms
+     * @param end the end of the window in ms (exclusive)
+     * @param events all of the events overlapping the window, sorted by start time
+     * @param version the version of the cache from before the events were loaded
+     * @return true if the window was cached or already was, false if it needs to be loaded again
+     */
+    public synchronized boolean putPrefetched(long start, long end, List<EventSummary> events, long version) {
+        if (find(start, end) != null) { return true; }
+        if (version != this.version) { return false; }
+        Window window = new Window(start, end, events);
+        window.expires = System.currentTimeMillis() + PREFETCH_LIFETIME;
+        windows.put(start, window);
+        return true;
+    }
+
+    /**
+     * Update the cached windows after events have been written to the database.
+     * @param written the events that were added or updated
+     * @param removed the events that were removed
+     */
+    public synchronized void update(List<Event> written, List<Event> removed) {
+        version++;
+        for (Window window : windows.values()) {
+            for (Event event : removed) { window.remove(event.id); }
+            for (Event event : written) {
+                window.remove(event.id);
+                for (Event occurrence : event.occurrencesBetween(window.start, window.end)) {
+                    window.insert(EventSummary.of(occurrence));
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop all cached windows.
+     */
+    public synchronized void clear() {
+        version++;
+        windows.clear();
+    }
+
+    /** @return the duration of an event in ms, 0 for an assignment */
+    private static long duration(EventSummary event) {
+        return event.endTime == null ? 0 : Math.max(0, event.endTime.getTime() - event.startTime.getTime());
+    }
+
+    /**
+     * Check if an event overlaps a range of time, the same way as CalendarDao.getEventsBetween().
+     */
+    private static boolean overlaps(EventSummary event, long start, long end) {
+        long eventEnd = event.endTime == null ? event.startTime.getTime() : event.endTime.getTime();
+        return event.startTime.getTime() < end && eventEnd >= start;
+    }
+}
@@ -0,0 +1,303 @@
+package edu.moravian.csci299.mocalendar;
+
+import android.util.Log;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A queue of writes to the events in the database. Writes are held for a short time so that writes
+ * made in quick succession can be combined. Multiple writes to the same event are merged into one
+ * (for example an update followed by a remove is just a remove) and all pending writes are flushed
+ * together in a single transaction on the write lane with the priority of this queue. Updates can
+ * be limited to some of the fields of an event, in which case only those columns are written.
+ *
+ * Removed events are only marked as deleted in the database, so a remove can be undone by
+ * restoring the event. Restoring an event whose remove has not been flushed yet simply drops the
+ * remove. Updates never restore an event on their own, so an event removed elsewhere stays removed
+ * even if an update of it was queued from a copy in memory.
+ *
+ * If a flush fails its writes are put back in the queue, in front of any writes queued since, and
+ * retried a few times before they are given up on and the failure is reported through the future.
+ */
+public class EventWriteQueue {
+    // How long writes are held before being flushed, in ms
+    private static final long FLUSH_DELAY = 100;
+    // How long to wait before retrying a failed flush, in ms, and how many times to retry it
+    private static final long RETRY_DELAY = 1000;
+    private static final int MAX_RETRIES = 3;
+    private static final String TAG = "EventWriteQueue";
+
+    /**
+     * Told about each batch of writes once it has been written to the database.
+     */
+    public interface FlushListener {
+        /**
+         * Called on the write lane after a batch of writes is written.
+         * @param written the events that were added or updated
+         * @param removed the events that were removed
+         */
+        void onFlushed(List<Event> written, List<Event> removed);
+    }
+
+    /** The kinds of writes */
+    private enum Operation { ADD, UPDATE, REMOVE, RESTORE }
+
+    /** A write waiting to be flushed */
+    private static class PendingWrite {
+        Operation operation;
+        Event event;
+        int fields;  // the fields to update (see CalendarDao.FIELD_NAME and others)
+        boolean restore;  // for an update, whether the event is also restored before it is updated
+        PendingWrite replaced;  // for a remove, the pending write it replaced (if any) for restoring
+        PendingWrite(Operation operation, Event event, int fields) {
+            this.operation = operation;
+            this.event = event;
+            this.fields = fields;
+        }
+    }
+
+    private final CalendarDao calendarDao;
+    private final WriteLane writeLane;
+    private final WriteLane.Priority priority;
+    private final FlushListener onFlushed;
+
+    // The pending writes, keyed by event id, and the future completed once they are flushed
+    private final Map<UUID, PendingWrite> pending = new LinkedHashMap<>();
+    private SettableFuture<Void> flushed;
+    // The number of times in a row flushing has failed, only used on the write lane
+    private int failures;
+    // Whether some event ids may still be stored as text (see AppDatabase.MIGRATION_2_3)
+    private volatile boolean textIdsRemain;
+
+    /**
+     * Create a new write queue.
+     * @param calendarDao the DAO to write the events with
+     * @param writeLane the write lane to flush the writes on
+     * @param priority the priority of the writes in this queue
+     * @param onFlushed told about each batch of writes after it is flushed
+     */
+    public EventWriteQueue(CalendarDao calendarDao, WriteLane writeLane, WriteLane.Priority priority,
+                           FlushListener onFlushed) {
+        this.calendarDao = calendarDao;
+        this.writeLane = writeLane;
+        this.priority = priority;
+        this.onFlushed = onFlushed;
+    }
+
+    /**
+     * Set whether some event ids may still be stored as text. While they may be, the ids of the
+     * events being updated, removed, or restored are rewritten first so that the writes find them.
+     * @param textIdsRemain whether some event ids may still be stored as text
+     */
+    public void setTextIdsRemain(boolean textIdsRemain) { this.textIdsRemain = textIdsRemain; }
+
+    /**
+     * Queue adding an event. If an event with the same id is in the database, it is replaced.
+     * @param event the event to add
+     * @return a future that completes once the event has been written
+     */
+    public ListenableFuture<Void> add(Event event) { return enqueue(Operation.ADD, event, CalendarDao.ALL_FIELDS); }
+
+    /**
+     * Queue adding several events, all of which will be written in the same transaction.
+     * @param events the events to add
+     * @return a future that completes once all of the events have been written
+     */
+    public synchronized ListenableFuture<Void> addAll(List<Event> events) {
+        ListenableFuture<Void> written = null;
+        for (Event event : events) { written = enqueue(Operation.ADD, event, CalendarDao.ALL_FIELDS); }
+        return written;
+    }
+
+    /**
+     * Queue updating an event.
+     * @param event the event to update
+     * @return a future that completes once the event has been written
+     */
+    public ListenableFuture<Void> update(Event event) { return enqueue(Operation.UPDATE, event, CalendarDao.ALL_FIELDS); }
+
+    /**
+     * Queue updating some of the fields of an event. Other pending updates to the event are merged
+     * with this one, updating the fields of both.
+     * @param event the event with the new values of the fields
+     * @param fields the fields to update, as CalendarDao.FIELD_ bits
+     * @return a future that completes once the event has been written
+     */
+    public ListenableFuture<Void> updateFields(Event event, int fields) { return enqueue(Operation.UPDATE, event, fields); }
+
+    /**
+     * Queue removing an event.
+     * @param event the event to remove
+     * @return a future that completes once the event has been removed
+     */
+    public ListenableFuture<Void> remove(Event event) { return enqueue(Operation.REMOVE, event, CalendarDao.ALL_FIELDS); }
+
+    /**
+     * Queue restoring a removed event, undoing the remove.
+     * @param event the event to restore, only its id is used
+     * @return a future that completes once the event has been restored
+     */
+    public ListenableFuture<Void> restore(Event event) { return enqueue(Operation.RESTORE, event, CalendarDao.ALL_FIELDS); }
+
+    /**
+     * Queue a write, merging it with any pending write to the same event, and schedule a flush if
+     * one is not already scheduled.
+     * @param operation the kind of write
+     * @param event the event to write
+     * @param fields the fields to write for an update
+     * @return a future that completes once the next flush finishes
+     */
+    private synchronized ListenableFuture<Void> enqueue(Operation operation, Event event, int fields) {
+        queue(operation, event, fields);
+        if (flushed == null) {
+            flushed = SettableFuture.create();
+            writeLane.schedule(this::flush, FLUSH_DELAY, priority);
+        }
+        return flushed;
+    }
+
+    /**
+     * Add a write to the pending writes, merging it with any pending write to the same event.
+     * @param operation the kind of write
+     * @param event the event to write
+     * @param fields the fields to write for an update
+     */
+    private void queue(Operation operation, Event event, int fields) {
+        PendingWrite write = pending.get(event.id);
+        if (write == null) {
+            pending.put(event.id, new PendingWrite(operation, event, fields));
+        } else if (operation == Operation.RESTORE && write.operation == Operation.REMOVE) {
+            // the remove was never written, so go back to whatever was pending before it
+            if (write.replaced == null) { pending.remove(event.id); }
+            else { pending.put(event.id, write.replaced); }
+        } else if (operation == Operation.REMOVE) {
+            PendingWrite remove = new PendingWrite(operation, event, fields);
+            remove.replaced = write.operation == Operation.REMOVE ? write.replaced : write;
+            pending.put(event.id, remove);
+        } else if (operation == Operation.RESTORE) {
+            // restore the event along with the pending add or update
+            write.restore = write.operation == Operation.UPDATE;
+        } else if (write.operation == Operation.RESTORE && operation == Operation.UPDATE) {
+            // updates never touch deleted events, so restore the event first
+            write.operation = Operation.UPDATE;
+            write.event = event;
+            write.fields = fields;
+            write.restore = true;
+        } else {
+            write.operation = merge(write.operation, operation);
+            write.event = event;
+            write.fields |= fields;
+        }
+    }
+
+    /**
+     * Queue a pending write again along with the writes it was merged from, so that it is merged
+     * with the pending writes the same way it was originally.
+     * @param write the pending write
+     */
+    private void requeue(PendingWrite write) {
+        if (write.replaced != null) { requeue(write.replaced); }
+        if (write.restore) { queue(Operation.RESTORE, write.event, CalendarDao.ALL_FIELDS); }
+        queue(write.operation, write.event, write.fields);
+    }
+
+    /**
+     * Merge two writes to the same event into the single write with the same effect. An add
+     * replaces any earlier write and an update keeps the kind of the earlier write (removes,
+     * restores, and updates of restored events are handled by enqueue()).
+     * @param earlier the earlier write
+     * @param later the later write
+     * @return the merged write
+     */
+    private static Operation merge(Operation earlier, Operation later) {
+        if (later == Operation.UPDATE) { return earlier; }
+        return later;
+    }
+
+    /**
+     * Write all pending writes to the database in a single transaction. Runs on the write lane.
+     */
+    private void flush() {
+        List<Event> added = new ArrayList<>(), updated = new ArrayList<>(), removed = new ArrayList<>();
+        List<UUID> restored = new ArrayList<>();
+        int[] updatedFields;
+        Map<UUID, PendingWrite> batch;
+        SettableFuture<Void> future;
+        synchronized (this) {
+            batch = new LinkedHashMap<>(pending);
+            updatedFields = new int[pending.size()];
+            for (PendingWrite write : pending.values()) {
+                switch (write.operation) {
+                    case ADD: added.add(write.event); break;
+                    case UPDATE:
+                        updatedFields[updated.size()] = write.fields;
+                        updated.add(write.event);
+                        if (write.restore) { restored.add(write.event.id); }
+                        break;
+                    case REMOVE: removed.add(write.event); break;
+                    case RESTORE: restored.add(write.event.id); break;
+                }
+            }
+            pending.clear();
+            future = flushed;
+            flushed = null;
+        }
+        List<Event> restoredEvents;
+        try {
+            for (Event event : added) { event.updateRecurrenceEnd(); }
+            for (Event event : updated) { event.updateRecurrenceEnd(); }
+            if (textIdsRemain) {
+                List<UUID> ids = new ArrayList<>(restored);
+                for (Event event : updated) { ids.add(event.id); }
+                for (Event event : removed) { ids.add(event.id); }
+                calendarDao.rewriteTextEventIdsOf(ids);
+            }
+            restoredEvents = calendarDao.writeEvents(added, updated, updatedFields, removed, restored);
+        } catch (RuntimeException ex) {
+            retry(batch, future, ex);
+            return;
+        }
+        failures = 0;
+        List<Event> written = new ArrayList<>(added);
+        written.addAll(updated);
+        written.addAll(restoredEvents);
+        onFlushed.onFlushed(written, removed);
+        future.set(null);
+    }
+
+    /**
+     * Put the writes of a failed flush back in front of the writes queued since and flush them
+     * again after a delay, or give up on them if they have failed too many times. Runs on the
+     * write lane.
+     * @param batch the writes that failed
+     * @param future the future of the writes that failed
+     * @param ex the reason they failed
+     */
+    private void retry(Map<UUID, PendingWrite> batch, SettableFuture<Void> future, RuntimeException ex) {
+        if (++failures > MAX_RETRIES) {
+            Log.e(TAG, "Giving up on writing " + batch.size() + " events", ex);
+            failures = 0;
+            future.setException(ex);
+            return;
+        }
+        Log.w(TAG, "Writing " + batch.size() + " events failed, retrying", ex);
+        synchronized (this) {
+            List<PendingWrite> newer = new ArrayList<>(pending.values());
+            pending.clear();
+            pending.putAll(batch);
+            for (PendingWrite write : newer) { requeue(write); }
+            if (flushed == null) {
+                flushed = SettableFuture.create();
+                writeLane.schedule(this::flush, RETRY_DELAY, priority);
+            }
+            future.setFuture(flushed);
+        }
+    }
+}
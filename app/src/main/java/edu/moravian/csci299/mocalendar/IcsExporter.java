@@ -0,0 +1,64 @@
+package edu.moravian.csci299.mocalendar;
+
+import android.database.Cursor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * Exports all events to an iCalendar (.ics) file. The events are read one row at a time from a
+ * database cursor into a single reused Event and written straight out through an IcsWriter, so the
+ * memory used is the same no matter how many events there are.
+ */
+public class IcsExporter {
+    private final CalendarDao calendarDao;
+    private final EventTypeConverter converter = new EventTypeConverter();
+
+    /**
+     * @param calendarDao the DAO to read the events with
+     */
+    IcsExporter(CalendarDao calendarDao) { this.calendarDao = calendarDao; }
+
+    /**
+     * Write all events to a file. Must be run in the background.
+     * @param output where to write the file, which is closed once done
+     * @return the number of events written
+     * @throws IOException if the file cannot be written
+     */
+    int export(OutputStream output) throws IOException {
+        int count = 0;
+        try (IcsWriter writer = new IcsWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), ZoneId.systemDefault());
+             Cursor cursor = calendarDao.getAllEventsCursor()) {
+            int id = cursor.getColumnIndexOrThrow("id");
+            int startTime = cursor.getColumnIndexOrThrow("startTime");
+            int endTime = cursor.getColumnIndexOrThrow("endTime");
+            int name = cursor.getColumnIndexOrThrow("name");
+            int type = cursor.getColumnIndexOrThrow("type");
+            int description = cursor.getColumnIndexOrThrow("description");
+            int recurrence = cursor.getColumnIndexOrThrow("recurrence");
+            int recurrenceExceptions = cursor.getColumnIndexOrThrow("recurrenceExceptions");
+            int recurrenceParentId = cursor.getColumnIndexOrThrow("recurrenceParentId");
+            int recurrenceId = cursor.getColumnIndexOrThrow("recurrenceId");
+            Event event = new Event();
+            while (cursor.moveToNext()) {
+                event.id = converter.toUUID(cursor.getBlob(id));
+                event.startTime = new Date(cursor.getLong(startTime));
+                event.endTime = cursor.isNull(endTime) ? null : new Date(cursor.getLong(endTime));
+                event.name = cursor.getString(name);
+                event.type = converter.toEventType(cursor.getInt(type));
+                event.description = cursor.getString(description);
+                event.recurrence = cursor.getString(recurrence);
+                event.recurrenceExceptions = converter.toDates(cursor.getString(recurrenceExceptions));
+                event.recurrenceParentId = converter.toUUID(cursor.getBlob(recurrenceParentId));
+                event.recurrenceId = cursor.isNull(recurrenceId) ? null : new Date(cursor.getLong(recurrenceId));
+                writer.write(event);
+                count++;
+            }
+        }
+        return count;
+    }
+}
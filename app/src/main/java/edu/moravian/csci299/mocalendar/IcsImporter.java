@@ -0,0 +1,205 @@
+package edu.moravian.csci299.mocalendar;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Imports the events of an iCalendar (.ics) file into the database. The file is streamed through
+ * an IcsReader and the events are added in fixed-size batches, each in its own transaction. Each
+ * batch is a separate bulk task on the write lane so that interactive writes can go in between
+ * batches of a large import.
+ *
+ * Events already in the database (found by the ids that come from their UIDs) are skipped, as are
+ * events repeated within the file, so importing the same file twice does not duplicate anything.
+ * Overrides of single occurrences add an exception to the repeating event they belong to, but only
+ * if that event was added by this import, and without rewriting the rest of it.
+ */
+public class IcsImporter {
+    // the number of events added in each transaction
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * Told about the progress of an import after each batch. Called on the write lane.
+     */
+    public interface ProgressListener {
+        /**
+         * @param imported the number of events added so far
+         * @param duplicates the number of events skipped so far since they were already added
+         * @param bytesRead the number of bytes of the file read so far
+         */
+        void onProgress(int imported, int duplicates, long bytesRead);
+    }
+
+    /**
+     * The number of events added and skipped by a finished import.
+     */
+    public static class Result {
+        public final int imported, duplicates;
+
+        Result(int imported, int duplicates) {
+            this.imported = imported;
+            this.duplicates = duplicates;
+        }
+    }
+
+    private final CalendarDao calendarDao;
+    private final WriteLane writeLane;
+    private final EventWriteQueue.FlushListener onWritten;
+    private final ProgressListener progress;
+    private final CountingInputStream input;
+    private final IcsReader reader;
+    private final SettableFuture<Result> result = SettableFuture.create();
+
+    // the ids of all events read so far, the repeating events added so far by id, and the exceptions
+    // of overrides read before the repeating event they belong to
+    private final Set<UUID> seen = new HashSet<>();
+    private final Map<UUID, Event> repeating = new HashMap<>();
+    private final Map<UUID, List<Date>> earlyExceptions = new HashMap<>();
+    private int imported, duplicates;
+
+    /**
+     * @param calendarDao the DAO to add the events with
+     * @param writeLane the lane to write the events on
+     * @param onWritten told about each batch of events once it is added
+     * @param input the contents of the file, which is closed once the import is done
+     * @param progress told about the progress of the import after each batch
+     */
+    IcsImporter(CalendarDao calendarDao, WriteLane writeLane, EventWriteQueue.FlushListener onWritten,
+                InputStream input, ProgressListener progress) {
+        this.calendarDao = calendarDao;
+        this.writeLane = writeLane;
+        this.onWritten = onWritten;
+        this.progress = progress;
+        this.input = new CountingInputStream(input);
+        this.reader = new IcsReader(new InputStreamReader(this.input, StandardCharsets.UTF_8), ZoneId.systemDefault());
+    }
+
+    /**
+     * Start importing the file.
+     * @return a future of the result of the import, which can be cancelled to stop the import
+     *         after the current batch
+     */
+    ListenableFuture<Result> start() {
+        writeLane.execute(this::importBatch, WriteLane.Priority.BULK);
+        return result;
+    }
+
+    /**
+     * Read and add the next batch of events, then queue the batch after it. Runs on the write lane.
+     */
+    private void importBatch() {
+        try {
+            if (result.isCancelled()) {
+                reader.close();
+                return;
+            }
+            List<Event> batch = new ArrayList<>(BATCH_SIZE);
+            Set<UUID> batchSeries = new HashSet<>();
+            Map<UUID, List<Date>> exceptions = new HashMap<>();
+            IcsReader.IcsEvent read = null;
+            while (batch.size() < BATCH_SIZE && (read = reader.next()) != null) {
+                Event event = read.event;
+                if (!seen.add(event.id)) {
+                    duplicates++;
+                    continue;
+                }
+                if (event.recurrence != null) {
+                    List<Date> early = earlyExceptions.remove(event.id);
+                    if (early != null) { event.recurrenceExceptions.addAll(early); }
+                    repeating.put(event.id, event);
+                    batchSeries.add(event.id);
+                }
+                if (read.recurrenceId != null) {
+                    // the repeating event skips the occurrence this event replaces: one in this batch
+                    // is added with the exception, one added by an earlier batch has just the
+                    // exception written, and one not read yet gets it once it is read
+                    UUID seriesId = event.recurrenceParentId;
+                    Event series = repeating.get(seriesId);
+                    if (series != null && batchSeries.contains(seriesId)) {
+                        series.recurrenceExceptions.add(read.recurrenceId);
+                    } else {
+                        Map<UUID, List<Date>> target = series != null ? exceptions : earlyExceptions;
+                        List<Date> dates = target.get(seriesId);
+                        if (dates == null) { target.put(seriesId, dates = new ArrayList<>()); }
+                        dates.add(read.recurrenceId);
+                    }
+                }
+                batch.add(event);
+            }
+
+            long[] rowIds = calendarDao.importEvents(batch, exceptions);
+            List<Event> added = new ArrayList<>(batch.size());
+            for (int i = 0; i < rowIds.length; i++) {
+                if (rowIds[i] != -1) {
+                    added.add(batch.get(i));
+                } else {
+                    // repeating events that were already in the database are left alone
+                    duplicates++;
+                    repeating.remove(batch.get(i).id);
+                }
+            }
+            imported += added.size();
+            if (!exceptions.isEmpty()) {
+                added.addAll(calendarDao.loadEventsById(new ArrayList<>(exceptions.keySet())));
+            }
+            if (!added.isEmpty()) { onWritten.onFlushed(added, Collections.emptyList()); }
+            progress.onProgress(imported, duplicates, input.count);
+
+            if (read == null) {
+                reader.close();
+                result.set(new Result(imported, duplicates));
+            } else {
+                writeLane.execute(this::importBatch, WriteLane.Priority.BULK);
+            }
+        } catch (IOException | RuntimeException ex) {
+            try { reader.close(); } catch (IOException ignored) { }
+            result.setException(ex);
+        }
+    }
+
+    /**
+     * A stream that counts the bytes read through it, so progress can be given as part of the file.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        volatile long count;
+
+        CountingInputStream(InputStream in) { super(in); }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) { count++; }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) { count += n; }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package edu.moravian.csci299.mocalendar;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.Executor;
+
+/**
+ * Starts imports and exports of iCalendar (.ics) files for the repository. Imports are written as
+ * bulk writes on the write lane by an IcsImporter, while exports stream the events from the
+ * database on the read pool through an IcsExporter.
+ */
+class IcsTransfer {
+    private final CalendarDao calendarDao;
+    private final WriteLane writeLane;
+    private final Executor readExecutor;
+    private final DataLayerStats stats;
+    private final EventWriteQueue.FlushListener onWritten;
+
+    IcsTransfer(CalendarDao calendarDao, WriteLane writeLane, Executor readExecutor, DataLayerStats stats,
+                EventWriteQueue.FlushListener onWritten) {
+        this.calendarDao = calendarDao;
+        this.writeLane = writeLane;
+        this.readExecutor = readExecutor;
+        this.stats = stats;
+        this.onWritten = onWritten;
+    }
+
+    /**
+     * Import the events of an iCalendar file in the background. Events that are already on the
+     * calendar are skipped.
+     * @param input the contents of the file, which is closed once the import is done
+     * @param progress told about the progress of the import, in the background
+     * @return a future of the numbers of events imported and skipped, which can be cancelled to
+     *         stop the import
+     */
+    ListenableFuture<IcsImporter.Result> importEvents(InputStream input, IcsImporter.ProgressListener progress) {
+        return new IcsImporter(calendarDao, writeLane, onWritten, input, progress).start();
+    }
+
+    /**
+     * Export all events to an iCalendar file in the background.
+     * @param output where to write the file, which is closed once done
+     * @return a future of the number of events exported
+     */
+    ListenableFuture<Integer> exportEvents(OutputStream output) {
+        ListenableFutureTask<Integer> task = ListenableFutureTask.create(() ->
+                stats.time("exportEvents", () -> new IcsExporter(calendarDao).export(output)));
+        readExecutor.execute(task);
+        return task;
+    }
+}
@@ -1,41 +1,68 @@
 package edu.moravian.csci299.mocalendar;
 
+import android.app.Activity;
+import android.app.AlertDialog;
 import android.content.Context;
+import android.content.Intent;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 
 import androidx.annotation.NonNull;
+import androidx.appcompat.widget.SearchView;
 import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.paging.PagingData;
+import androidx.paging.PagingDataAdapter;
 import androidx.recyclerview.widget.ItemTouchHelper;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
+import android.view.GestureDetector;
 import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ImageView;
 import android.widget.TextView;
 
-import java.util.Date;
+import com.google.android.material.snackbar.Snackbar;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Objects;
+import java.util.UUID;
 
 /**
- * A fragment that displays a list of events. The list is a RecyclerView. When an event on the list
+ * A fragment that displays a list of events. The list is a RecyclerView of event summaries, so only
+ * a preview of each description is loaded. When an event on the list
  * is clicked, a callback method is called to inform the hosting activity. When an item on the list
  * is swiped, it causes the event to be deleted (see https://medium.com/@zackcosborn/step-by-step-recyclerview-swipe-to-delete-and-undo-7bbae1fce27e).
  * This is the fragment that also controls the menu of options in the app bar.
  *
- * Above the list is a text box that states the date being displayed on the list.
+ * Above the list is a text box that states the date being displayed on the list. The day and its
+ * events are held in a ListViewModel so that they survive rotation, and the list is diffed in the
+ * background so only the events that changed are rebound.
+ *
+ * The options menu can also switch the list to an agenda of all events starting from the date. The
+ * agenda is paged so that it can be scrolled in either direction through any number of events.
+ * Searching from the app bar replaces the list with the events best matching the search as it is
+ * typed. The options menu can also import the events of an iCalendar file picked by the user.
  *
  * NOTE: Finish CalendarFragment first then work on this one. Also, look at how a few things
  * related to dates are dealt with in the CalendarFragment and use similar ideas here.
@@ -43,10 +70,34 @@ import java.util.Objects;
 public class ListFragment extends Fragment {
     // fragment initialization parameters
     private static final String ARG_DATE = "date";
+    private static final String ARG_AGENDA = "agenda";
+    private static final String ARG_WEEK = "week";
+
+    // how long to wait for typing to pause before searching (in ms) and how many results to show
+    private static final long SEARCH_DELAY = 300;
+    private static final int SEARCH_LIMIT = 100;
+
+    // the request codes for picking a calendar file to import and for creating one to export to
+    private static final int REQUEST_IMPORT = 0;
+    private static final int REQUEST_EXPORT = 1;
+
+    // the hours of the day searched for a free time (from the first up to the last) and the length
+    // of the time looked for (in minutes)
+    private static final int FIND_TIME_FIRST_HOUR = 8, FIND_TIME_LAST_HOUR = 22;
+    private static final int FIND_TIME_MINUTES = 60;
 
     private Date date;
+    private boolean showAgenda, showWeek;
+    private ListViewModel viewModel;
     private RecyclerView list;
-    private List<Event> events = Collections.emptyList();
+    private EventAdapter adapter;
+    private AgendaAdapter agendaAdapter;
+    private WeekAdapter weekAdapter;
+    private EventAdapter searchAdapter;
+    private LiveData<PagingData<EventSummary>> agendaEvents;
+    private final Handler searchHandler = new Handler(Looper.getMainLooper());
+    private Runnable pendingSearch;
+    private ListenableFuture<List<EventSummary>> searchInFlight;
     private Callbacks callbacks;
     private TextView currentDate;
 
@@ -57,9 +108,16 @@ public class ListFragment extends Fragment {
     public interface Callbacks {
         /**
          * When an event is clicked in the recycler view or in menu
-         * @param event The event clicked
+         * @param eventId The id of the event clicked
          */
-        void onEventClicked(Event event);
+        void onEventClicked(UUID eventId);
+
+        /**
+         * When the day being shown is changed by the list itself, such as by swiping to another
+         * week
+         * @param date the day now shown
+         */
+        void onDayShown(Date date);
     }
 
     /**
@@ -92,17 +150,22 @@ public class ListFragment extends Fragment {
     public void setDay(Date date) {
         this.date = date;
         Objects.requireNonNull(getArguments()).putSerializable(ARG_DATE, date);
-        onDateChange();
+        viewModel.setDay(date);
+        if (showAgenda) { loadAgenda(); }
+        if (showWeek) { showWeekHeading(); }
     }
 
     /**
-     * Upon creation need to enable the options menu and update the view for the initial date.
+     * Upon creation need to enable the options menu and give the view model the initial date.
      */
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         this.date = DateUtils.useDateOrNow((Date) Objects.requireNonNull(getArguments()).getSerializable(ARG_DATE));
-        onDateChange();
+        this.showAgenda = getArguments().getBoolean(ARG_AGENDA);
+        this.showWeek = !showAgenda && getArguments().getBoolean(ARG_WEEK);
+        viewModel = new ViewModelProvider(this).get(ListViewModel.class);
+        viewModel.setDay(this.date);
         setHasOptionsMenu(true);
     }
 
@@ -118,29 +181,168 @@ public class ListFragment extends Fragment {
 
         list = base.findViewById(R.id.list_view);
         list.setLayoutManager(new LinearLayoutManager(getContext()));
-        EventAdapter adapter = new EventAdapter();
-        list.setAdapter(adapter);
-        ItemTouchHelper itemTouchHelper = new ItemTouchHelper(new SwipeToDeleteCallback(adapter));
+        adapter = new EventAdapter(false);
+        agendaAdapter = new AgendaAdapter();
+        weekAdapter = new WeekAdapter(eventId -> callbacks.onEventClicked(eventId));
+        searchAdapter = new EventAdapter(true);
+        list.setAdapter(showAgenda ? agendaAdapter : showWeek ? weekAdapter : adapter);
+        ItemTouchHelper itemTouchHelper = new ItemTouchHelper(new SwipeToDeleteCallback());
         itemTouchHelper.attachToRecyclerView(list);
 
         currentDate = base.findViewById(R.id.date);
+        viewModel.getEvents().observe(getViewLifecycleOwner(), events -> {
+            adapter.submitList(events, () -> list.post(() -> StartupTrace.record(StartupTrace.Milestone.FIRST_LIST_RENDERED)));
+            if (list.getAdapter() == adapter) { currentDate.setText(DateUtils.toFullDateString(this.date)); }
+        });
+        if (showAgenda) { loadAgenda(); }
+        if (showWeek) { loadWeek(); }
+
+        // In the week view, flinging the heading sideways moves to the previous or next week
+        GestureDetector weekSwipes = new GestureDetector(getContext(), new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(MotionEvent e) { return list.getAdapter() == weekAdapter; }
+
+            @Override
+            public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
+                if (list.getAdapter() != weekAdapter || Math.abs(velocityX) < Math.abs(velocityY)) { return false; }
+                Date day = new Date(DateUtils.addDays(date.getTime(), velocityX < 0 ? 7 : -7));
+                setDay(day);
+                callbacks.onDayShown(day);
+                return true;
+            }
+        });
+        currentDate.setOnTouchListener((v, event) -> weekSwipes.onTouchEvent(event));
 
         // return the base view
         return base;
     }
 
     /**
-     * When the date is changed for this fragment we need to grab a new list of events and update
-     * the UI.
+     * Load the agenda of events starting at the date of this fragment, replacing any agenda that
+     * was already loaded.
      */
-    private void onDateChange() {
-        int[] day = DateUtils.getYearMonthDay(this.date);
-        LiveData<List<Event>> liveDataEvents = EventRepository.get().getEventsOnDay(DateUtils.getDate(day[0], day[1], day[2]));
-        liveDataEvents.observe(this, (events) -> {
-            this.events = events;
-            Objects.requireNonNull(list.getAdapter()).notifyDataSetChanged();
+    private void loadAgenda() {
+        if (agendaEvents != null) { agendaEvents.removeObservers(getViewLifecycleOwner()); }
+        agendaEvents = EventRepository.get().getEventSummariesPaged(this.date);
+        agendaEvents.observe(getViewLifecycleOwner(),
+                events -> agendaAdapter.submitData(getViewLifecycleOwner().getLifecycle(), events));
+        if (list.getAdapter() == agendaAdapter) {
+            currentDate.setText(getString(R.string.agenda_from, DateUtils.toDateString(this.date)));
+        }
+    }
+
+    /**
+     * Show the events of the week containing the date of this fragment, grouped by day. The rows
+     * follow the date, and the weeks around it are kept loaded by the repository.
+     */
+    private void loadWeek() {
+        viewModel.getWeek().removeObservers(getViewLifecycleOwner());
+        viewModel.getWeek().observe(getViewLifecycleOwner(), rows -> weekAdapter.submitList(rows));
+        showWeekHeading();
+    }
+
+    /**
+     * Show the week being listed in the heading.
+     */
+    private void showWeekHeading() {
+        if (list.getAdapter() == weekAdapter) {
+            long week = DateUtils.getStartOfWeek(this.date.getTime());
+            currentDate.setText(getString(R.string.week_of, DateUtils.toDateString(week)));
+        }
+    }
+
+    /**
+     * Switch between showing the events on the day, the agenda of events from the day, and the
+     * events of the week containing the day.
+     * @param showAgenda true to show the agenda
+     * @param showWeek true to show the week (if not showing the agenda)
+     */
+    private void setShowing(boolean showAgenda, boolean showWeek) {
+        this.showAgenda = showAgenda;
+        this.showWeek = !showAgenda && showWeek;
+        Objects.requireNonNull(getArguments()).putBoolean(ARG_AGENDA, this.showAgenda);
+        getArguments().putBoolean(ARG_WEEK, this.showWeek);
+        if (!this.showAgenda) {
+            if (agendaEvents != null) { agendaEvents.removeObservers(getViewLifecycleOwner()); }
+            agendaEvents = null;
+        }
+        if (!this.showWeek) { viewModel.getWeek().removeObservers(getViewLifecycleOwner()); }
+        if (this.showAgenda) {
+            list.setAdapter(agendaAdapter);
+            loadAgenda();
+        } else if (this.showWeek) {
+            list.setAdapter(weekAdapter);
+            loadWeek();
+        } else {
+            list.setAdapter(adapter);
             currentDate.setText(DateUtils.toFullDateString(this.date));
-        });
+        }
+    }
+
+    /**
+     * Search for events matching the given text once typing pauses. Any search that has not
+     * finished yet is cancelled so that only the results for the latest text are shown.
+     * @param text the text to search for
+     */
+    private void search(String text) {
+        cancelSearch();
+        pendingSearch = () -> {
+            pendingSearch = null;
+            ListenableFuture<List<EventSummary>> future = EventRepository.get().searchEvents(text, SEARCH_LIMIT);
+            searchInFlight = future;
+            Futures.addCallback(future, new FutureCallback<List<EventSummary>>() {
+                @Override
+                public void onSuccess(List<EventSummary> results) {
+                    if (future != searchInFlight) { return; }
+                    searchInFlight = null;
+                    searchAdapter.submitList(results);
+                }
+
+                @Override
+                public void onFailure(@NonNull Throwable t) {
+                    if (future == searchInFlight) { searchInFlight = null; }
+                }
+            }, ContextCompat.getMainExecutor(requireContext()));
+        };
+        searchHandler.postDelayed(pendingSearch, SEARCH_DELAY);
+    }
+
+    /**
+     * Cancel any search that is waiting for typing to pause or that has not finished yet.
+     */
+    private void cancelSearch() {
+        if (pendingSearch != null) {
+            searchHandler.removeCallbacks(pendingSearch);
+            pendingSearch = null;
+        }
+        if (searchInFlight != null) {
+            searchInFlight.cancel(true);
+            searchInFlight = null;
+        }
+    }
+
+    /**
+     * Switch between showing search results and showing the day or agenda.
+     * @param searching true to show the search results
+     */
+    private void setSearching(boolean searching) {
+        if (searching) {
+            searchAdapter.submitList(Collections.emptyList());
+            list.setAdapter(searchAdapter);
+            currentDate.setText(R.string.search_results);
+        } else {
+            cancelSearch();
+            setShowing(showAgenda, showWeek);
+        }
+    }
+
+    /**
+     * Stop any searches once the view is gone.
+     */
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        cancelSearch();
     }
 
     /**
@@ -168,6 +370,38 @@ public class ListFragment extends Fragment {
     public void onCreateOptionsMenu(@NonNull Menu menu, @NonNull MenuInflater inflater) {
         super.onCreateOptionsMenu(menu, inflater);
         inflater.inflate(R.menu.event_menu, menu);
+        menu.findItem(R.id.agenda).setChecked(showAgenda);
+        menu.findItem(R.id.week).setChecked(showWeek);
+        menu.findItem(R.id.dump_stats).setVisible(BuildConfig.DEBUG);
+
+        // Search as the text changes while the search is expanded
+        MenuItem searchItem = menu.findItem(R.id.search);
+        searchItem.setOnActionExpandListener(new MenuItem.OnActionExpandListener() {
+            @Override
+            public boolean onMenuItemActionExpand(MenuItem item) {
+                setSearching(true);
+                return true;
+            }
+
+            @Override
+            public boolean onMenuItemActionCollapse(MenuItem item) {
+                setSearching(false);
+                return true;
+            }
+        });
+        ((SearchView) searchItem.getActionView()).setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                search(query);
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                search(newText);
+                return true;
+            }
+        });
     }
 
     /**
@@ -191,7 +425,27 @@ public class ListFragment extends Fragment {
                 event.type = EventType.ASSIGNMENT;
             }
             EventRepository.get().addEvent(event);
-            callbacks.onEventClicked(event);
+            callbacks.onEventClicked(event.id);
+            return true;
+        } else if (id == R.id.import_calendar) {
+            startActivityForResult(CalendarFileActions.importIntent(), REQUEST_IMPORT);
+            return true;
+        } else if (id == R.id.export_calendar) {
+            startActivityForResult(CalendarFileActions.exportIntent(), REQUEST_EXPORT);
+            return true;
+        } else if (id == R.id.find_time) {
+            findTime();
+            return true;
+        } else if (id == R.id.dump_stats) {
+            dumpStats();
+            return true;
+        } else if (id == R.id.agenda) {
+            setShowing(!item.isChecked(), false);
+            requireActivity().invalidateOptionsMenu();
+            return true;
+        } else if (id == R.id.week) {
+            setShowing(false, !item.isChecked());
+            requireActivity().invalidateOptionsMenu();
             return true;
         } else {
             return super.onOptionsItemSelected(item);
@@ -199,43 +453,144 @@ public class ListFragment extends Fragment {
     }
 
     /**
-     * The view holder of a single event in the RecyclerView list.
+     * Import the calendar file picked by the user or export to the file created by the user.
      */
-    private class EventHolder extends RecyclerView.ViewHolder {
-        // currently bound event
-        Event event;
+    @Override
+    public void onActivityResult(int requestCode, int resultCode, Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        if (resultCode != Activity.RESULT_OK || data == null || data.getData() == null) { return; }
+        if (requestCode == REQUEST_IMPORT) {
+            CalendarFileActions.importCalendar(list, data.getData());
+        } else if (requestCode == REQUEST_EXPORT) {
+            CalendarFileActions.exportCalendar(list, data.getData());
+        }
+    }
 
-        // the text views in the view we are holding
-        TextView eventName, eventDescription, startTime, endTime;
-        ImageView eventIcon;
+    /**
+     * Find the free times of at least FIND_TIME_MINUTES during the waking hours of the day being
+     * shown and let the user pick one to add an event at.
+     */
+    private void findTime() {
+        Date from = DateUtils.combineDateAndTime(date, DateUtils.getTime(FIND_TIME_FIRST_HOUR, 0));
+        Date to = DateUtils.combineDateAndTime(date, DateUtils.getTime(FIND_TIME_LAST_HOUR, 0));
+        ListenableFuture<List<FreeBusyFinder.Slot>> slots = EventRepository.get().findFreeSlots(from, to, FIND_TIME_MINUTES);
+        Futures.addCallback(slots, new FutureCallback<List<FreeBusyFinder.Slot>>() {
+            @Override
+            public void onSuccess(List<FreeBusyFinder.Slot> slots) {
+                if (!isAdded()) { return; }
+                if (slots.isEmpty()) {
+                    Snackbar.make(list, R.string.find_time_none, Snackbar.LENGTH_LONG).show();
+                } else {
+                    showFreeSlots(slots);
+                }
+            }
 
-        /**
-         * Create a new event holder for the given view.
-         * @param itemView the view to have within this holder
-         */
-        public EventHolder(@NonNull View itemView) {
-            super(itemView);
-            eventName = itemView.findViewById(R.id.event_name);
-            eventDescription = itemView.findViewById(R.id.description);
-            startTime = itemView.findViewById(R.id.start_time);
-            endTime = itemView.findViewById(R.id.date);
-            eventIcon = itemView.findViewById(R.id.eventTypeIcon);
-            itemView.setOnClickListener(v -> callbacks.onEventClicked(event));
+            @Override
+            public void onFailure(@NonNull Throwable t) {
+                if (isAdded()) { Snackbar.make(list, R.string.find_time_failed, Snackbar.LENGTH_LONG).show(); }
+            }
+        }, ContextCompat.getMainExecutor(requireContext()));
+    }
+
+    /**
+     * Show the free times in a dialog. Picking one adds an event at the start of it and opens it.
+     * @param slots the free times
+     */
+    private void showFreeSlots(List<FreeBusyFinder.Slot> slots) {
+        String[] times = new String[slots.size()];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = DateUtils.toTimeString(slots.get(i).start) + " - " + DateUtils.toTimeString(slots.get(i).end);
         }
+        new AlertDialog.Builder(requireContext())
+                .setTitle(R.string.find_time_title)
+                .setItems(times, (dialog, which) -> {
+                    Event event = new Event();
+                    event.name = "New Event";
+                    event.startTime = new Date(slots.get(which).start);
+                    event.endTime = new Date(slots.get(which).start + FIND_TIME_MINUTES * 60 * 1000L);
+                    event.type = EventType.GENERIC;
+                    EventRepository.get().addEvent(event);
+                    callbacks.onEventClicked(event.id);
+                })
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
     }
 
     /**
-     * The adapter for the RecyclerView list to show information from the list of events.
+     * Write the timings of the data layer to a file in the app's external files folder (where it
+     * can be pulled off of the device) and show where in a snackbar. Only offered in debug builds.
      */
-    private class EventAdapter extends RecyclerView.Adapter<EventHolder> {
+    private void dumpStats() {
+        File dir = requireContext().getExternalFilesDir(null);
+        File file = new File(dir != null ? dir : requireContext().getFilesDir(), "data-layer-stats.txt");
+        Futures.addCallback(EventRepository.get().dumpStats(file), new FutureCallback<File>() {
+            @Override
+            public void onSuccess(File file) {
+                if (!isAdded()) { return; }
+                Snackbar.make(list, getString(R.string.stats_dumped, file.getPath()), Snackbar.LENGTH_LONG).show();
+            }
+
+            @Override
+            public void onFailure(@NonNull Throwable t) {
+                if (isAdded()) { Snackbar.make(list, R.string.stats_dump_failed, Snackbar.LENGTH_LONG).show(); }
+            }
+        }, ContextCompat.getMainExecutor(requireContext()));
+    }
+
+    /**
+     * Remove an event from the database and show a snackbar that can undo it. For an occurrence of
+     * a repeating event only that occurrence is removed, as an exception of the series.
+     * @param event the event to remove
+     */
+    private void removeWithUndo(EventSummary event) {
+        UUID id = event.id;
+        if (event.repeating) {
+            Date start = event.startTime;
+            EventRepository.get().removeOccurrence(id, start);
+            Snackbar.make(list, R.string.occurrence_deleted, Snackbar.LENGTH_LONG)
+                    .setAction(R.string.undo, v -> EventRepository.get().restoreOccurrence(id, start))
+                    .show();
+        } else {
+            EventRepository.get().removeEvent(id);
+            Snackbar.make(list, R.string.event_deleted, Snackbar.LENGTH_LONG)
+                    .setAction(R.string.undo, v -> EventRepository.get().restoreEvent(id))
+                    .show();
+        }
+    }
+
+    /**
+     * The adapter for the RecyclerView list to show information from the list of events. New lists
+     * are diffed against the current one in the background and only the changed events are rebound.
+     */
+    private class EventAdapter extends ListAdapter<EventSummary, EventHolder> {
+        // if the dates of the events are shown
+        private final boolean showDate;
+
+        /**
+         * @param showDate true to show the date of each event along with its start time
+         */
+        EventAdapter(boolean showDate) {
+            super(EventHolder.DIFF);
+            this.showDate = showDate;
+            setHasStableIds(true);
+        }
+
+        /**
+         * @return a stable id for the event at the given position, made from its id and start time
+         */
+        @Override
+        public long getItemId(int position) {
+            EventSummary event = getItem(position);
+            return event.id.getMostSignificantBits() ^ event.id.getLeastSignificantBits() ^ event.startTime.getTime();
+        }
+
         /**
          * Create and return the event holder for an item in the RecyclerView list.
          */
         @NonNull
         @Override
         public EventHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-            View view = getLayoutInflater().inflate(R.layout.list_item, parent, false);
-            return new EventHolder(view);
+            return EventHolder.create(parent, eventId -> callbacks.onEventClicked(eventId));
         }
 
         /**
@@ -243,31 +598,52 @@ public class ListFragment extends Fragment {
          */
         @Override
         public void onBindViewHolder(@NonNull EventHolder holder, int position) {
-            Event event = events.get(position);
-            holder.event = event;
-            holder.eventName.setText(event.name);
-            holder.eventDescription.setText(event.description);
-            holder.startTime.setText(DateUtils.toTimeString(event.startTime));
-            if (event.endTime != null) {
-                holder.endTime.setText(DateUtils.toTimeString(event.endTime));
-            }
-            holder.eventIcon.setImageResource(event.type.iconResourceId);
+            holder.bind(getItem(position), showDate);
+        }
+
+        /**
+         * Delete an event from the database and remove it from the list of events
+         * @param position The position of the event to remove
+         */
+        public void deleteEvent(int position) {
+            List<EventSummary> events = new ArrayList<>(getCurrentList());
+            removeWithUndo(events.remove(position));
+            submitList(events);
+        }
+    }
+
+    /**
+     * The adapter for the RecyclerView list to show the pages of events in the agenda.
+     */
+    private class AgendaAdapter extends PagingDataAdapter<EventSummary, EventHolder> {
+        AgendaAdapter() { super(EventHolder.DIFF); }
+
+        /**
+         * Create and return the event holder for an item in the RecyclerView list.
+         */
+        @NonNull
+        @Override
+        public EventHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            return EventHolder.create(parent, eventId -> callbacks.onEventClicked(eventId));
         }
 
         /**
-         * @return the number of events in the list
+         * Bind the given event holder to an item in the agenda.
          */
         @Override
-        public int getItemCount() { return events == null ? 0 : events.size(); }
+        public void onBindViewHolder(@NonNull EventHolder holder, int position) {
+            EventSummary event = getItem(position);
+            if (event != null) { holder.bind(event, true); }
+        }
 
         /**
-         * Delete an event from the database and remove it from the list of events
+         * Delete an event in the agenda from the database. The agenda reloads itself once the
+         * database changes.
          * @param position The position of the event to remove
          */
         public void deleteEvent(int position) {
-            EventRepository.get().removeEvent(events.get(position));
-            events.remove(position);
-            notifyItemRemoved(position);
+            EventSummary event = peek(position);
+            if (event != null) { removeWithUndo(event); }
         }
     }
 
@@ -277,17 +653,14 @@ public class ListFragment extends Fragment {
     private class SwipeToDeleteCallback extends ItemTouchHelper.SimpleCallback {
 
         /** Swipe to delete functionality */
-        private final EventAdapter adapter;
         private final Drawable icon;
         private final ColorDrawable background;
 
         /**
-         * Set up the icon, color and adapter for swipe to delete
-         * @param adapter The custom EventAdapter for all events
+         * Set up the icon and color for swipe to delete
          */
-        public SwipeToDeleteCallback(EventAdapter adapter) {
+        public SwipeToDeleteCallback() {
             super(0, ItemTouchHelper.LEFT | ItemTouchHelper.RIGHT);
-            this.adapter = adapter;
             icon = ContextCompat.getDrawable(list.getContext(), R.drawable.delete);
             background = new ColorDrawable(Color.RED);
         }
@@ -300,6 +673,14 @@ public class ListFragment extends Fragment {
             return false;
         }
 
+        /**
+         * Day headings cannot be swiped away
+         */
+        @Override
+        public int getSwipeDirs(@NonNull RecyclerView recyclerView, @NonNull RecyclerView.ViewHolder viewHolder) {
+            return viewHolder instanceof WeekAdapter.DayHeadingHolder ? 0 : super.getSwipeDirs(recyclerView, viewHolder);
+        }
+
         /**
          * When an event is swiped
          * @param viewHolder The Holder for an event
@@ -308,7 +689,9 @@ public class ListFragment extends Fragment {
         @Override
         public void onSwiped(@NonNull RecyclerView.ViewHolder viewHolder, int direction) {
             int position = viewHolder.getAdapterPosition();
-            adapter.deleteEvent(position);
+            if (list.getAdapter() == agendaAdapter) { agendaAdapter.deleteEvent(position); }
+            else if (list.getAdapter() == weekAdapter) { removeWithUndo(weekAdapter.getEvent(position)); }
+            else { ((EventAdapter) Objects.requireNonNull(list.getAdapter())).deleteEvent(position); }
         }
 
         /**
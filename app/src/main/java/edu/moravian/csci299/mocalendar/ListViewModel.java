@@ -0,0 +1,107 @@
+package edu.moravian.csci299.mocalendar;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
+import androidx.lifecycle.ViewModel;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The state behind a ListFragment: the day being listed, the events on it, and the events of the
+ * week containing it. The events follow the day through a single switchMap, so changing the day
+ * swaps which query is observed instead of adding another observer. Since this outlives the
+ * fragment's views, the events are still loaded after a rotation and do not need to be queried
+ * again.
+ */
+public class ListViewModel extends ViewModel {
+    // the start of the day being listed
+    private final MutableLiveData<Date> day = new MutableLiveData<>();
+    // the summaries of the events on the day
+    private final LiveData<List<EventSummary>> events =
+            Transformations.switchMap(day, date -> EventRepository.get().getEventSummariesOnDay(date));
+
+    // the rows of the week containing the day, with the events of the week grouped under each day
+    private final LiveData<List<WeekRow>> week = Transformations.switchMap(day, date -> {
+        long start = DateUtils.getStartOfWeek(date.getTime());
+        return Transformations.map(EventRepository.get().getEventSummariesInWeek(date), events -> groupByDay(events, start));
+    });
+
+    /**
+     * A row of the week view: either the heading of a day or an event on that day.
+     */
+    public static class WeekRow {
+        // the start of the day and the event, which is null for the heading of the day
+        public final long day;
+        public final EventSummary event;
+
+        WeekRow(long day, EventSummary event) {
+            this.day = day;
+            this.event = event;
+        }
+    }
+
+    /**
+     * @return the start of the day being listed, or null if it has not been set yet
+     */
+    public Date getDay() { return day.getValue(); }
+
+    /**
+     * Set the day to list the events of. Setting the day that is already being listed does nothing.
+     * @param date any date-time within the day
+     */
+    public void setDay(Date date) {
+        Date start = DateUtils.getStartOfDay(date);
+        if (!start.equals(day.getValue())) { day.setValue(start); }
+    }
+
+    /**
+     * @return live-data view of the summaries of the events on the day being listed
+     */
+    public LiveData<List<EventSummary>> getEvents() { return events; }
+
+    /**
+     * @return live-data view of the rows of the week containing the day being listed
+     */
+    public LiveData<List<WeekRow>> getWeek() { return week; }
+
+    /**
+     * Group the events of a week by the days they are on in a single pass over them. An event that
+     * lasts over more than one day is on each of those days.
+     * @param events the events overlapping the week ordered by start time
+     * @param start the start of the week
+     * @return a heading for each day of the week followed by the events on that day
+     */
+    static List<WeekRow> groupByDay(List<EventSummary> events, long start) {
+        long[] days = new long[8];
+        List<List<WeekRow>> byDay = new ArrayList<>(7);
+        for (int i = 0; i < 8; i++) {
+            days[i] = DateUtils.addDays(start, i);
+            if (i < 7) {
+                byDay.add(new ArrayList<>());
+                byDay.get(i).add(new WeekRow(days[i], null));
+            }
+        }
+        for (EventSummary event : events) {
+            long eventStart = event.startTime.getTime();
+            long eventEnd = event.endTime != null ? event.endTime.getTime() : eventStart;
+            int first = dayOf(days, eventStart), last = eventEnd > eventStart ? dayOf(days, eventEnd - 1) : first;
+            for (int day = first; day <= last; day++) { byDay.get(day).add(new WeekRow(days[day], event)); }
+        }
+        List<WeekRow> rows = new ArrayList<>(events.size() + 7);
+        for (List<WeekRow> day : byDay) { rows.addAll(day); }
+        return rows;
+    }
+
+    /**
+     * @return the index of the day of the week a time is in, where times before or after the week
+     *         are in its first or last day
+     */
+    private static int dayOf(long[] days, long time) {
+        int day = 0;
+        while (day < 6 && days[day + 1] <= time) { day++; }
+        return day;
+    }
+}
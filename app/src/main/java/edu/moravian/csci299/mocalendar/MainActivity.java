@@ -7,6 +7,7 @@ import androidx.fragment.app.FragmentManager;
 import android.os.Bundle;
 
 import java.util.Date;
+import java.util.UUID;
 /**
  * The main (and only) activity for the application that hosts all of the fragments.
  *
@@ -61,15 +62,25 @@ public class MainActivity extends AppCompatActivity implements CalendarFragment.
         listFragment.setDay(date);
     }
 
+    /**
+     * Let the calendar fragment know the list moved to another day
+     * @param date the day now shown
+     */
+    @Override
+    public void onDayShown(Date date) {
+        CalendarFragment calendarFragment = (CalendarFragment) getSupportFragmentManager().findFragmentByTag(CALENDAR_TAG);
+        if (calendarFragment != null) { calendarFragment.setDay(date); }
+    }
+
     /**
      * Replace the fragments with an event fragment to create an event
-     * @param event The event clicked on
+     * @param eventId The id of the event clicked on
      */
     @Override
-    public void onEventClicked(Event event) {
+    public void onEventClicked(UUID eventId) {
         getSupportFragmentManager()
             .beginTransaction()
-            .replace(R.id.fragment_container, EventFragment.newInstance(event))
+            .replace(R.id.fragment_container, EventFragment.newInstance(eventId))
             .addToBackStack(null)
             .commit();
     }
@@ -0,0 +1,65 @@
+package edu.moravian.csci299.mocalendar;
+
+import com.google.common.util.concurrent.Futures;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * An event store backed by the database. Reads query the database directly while writes go through
+ * a write queue so that the caches of the repository see them, waiting until they are written.
+ *
+ * Every method blocks, so this must only be used in the background and never on the write lane
+ * (which would wait on itself).
+ */
+public class RoomEventStore implements EventStore {
+    private final CalendarDao calendarDao;
+    private final EventWriteQueue writes;
+
+    /**
+     * @param calendarDao the DAO to read events with
+     * @param writes the queue to write events with
+     */
+    public RoomEventStore(CalendarDao calendarDao, EventWriteQueue writes) {
+        this.calendarDao = calendarDao;
+        this.writes = writes;
+    }
+
+    @Override
+    public Event get(UUID id) { return calendarDao.loadEventById(id); }
+
+    @Override
+    public List<Event> getEventsStartingBetween(long start, long end) {
+        List<Event> found = new ArrayList<>();
+        for (Event event : Event.expandBetween(calendarDao.loadEventsStartingBetween(new Date(start), new Date(end)), start, end)) {
+            if (event.startTime.getTime() >= start) { found.add(event); }
+        }
+        return found;
+    }
+
+    @Override
+    public List<Event> getEventsOverlapping(long start, long end) {
+        return Event.expandBetween(calendarDao.loadEventsBetween(new Date(start), new Date(end)), start, end);
+    }
+
+    @Override
+    public void put(Event event) { Futures.getUnchecked(writes.add(event)); }
+
+    @Override
+    public void putAll(Collection<Event> events) {
+        if (!events.isEmpty()) { Futures.getUnchecked(writes.addAll(new ArrayList<>(events))); }
+    }
+
+    @Override
+    public void remove(UUID id) {
+        Event event = new Event();
+        event.id = id;
+        Futures.getUnchecked(writes.remove(event));
+    }
+
+    @Override
+    public int size() { return calendarDao.countEvents(); }
+}
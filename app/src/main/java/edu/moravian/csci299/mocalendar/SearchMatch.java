@@ -0,0 +1,52 @@
+package edu.moravian.csci299.mocalendar;
+
+import androidx.room.Ignore;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A summary of an event that matches a full-text search along with the raw match information for
+ * ranking how well it matches (see CalendarDao.search()).
+ */
+public class SearchMatch extends EventSummary {
+    /**
+     * How much a match in each column of the search index counts, in the order of the columns of
+     * EventFts (name then description).
+     */
+    private static final double[] COLUMN_WEIGHTS = {2.0, 1.0};
+
+    /**
+     * The result of the FTS4 function matchinfo(event_fts, 'pcx') for this event.
+     */
+    public byte[] matchInfo;
+
+    // the rank once computed
+    @Ignore
+    private double rank = Double.NaN;
+
+    /**
+     * Compute how well this event matches the search. For each term in the search and each column,
+     * the number of times the term appears in that column of this event is divided by the number of
+     * times it appears in that column of all events, so rarer terms count for more. These are then
+     * weighted by column and added together.
+     * @return the rank of this match, larger is better
+     */
+    public double rank() {
+        if (!Double.isNaN(rank)) { return rank; }
+        ByteBuffer info = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder());
+        int phrases = info.getInt(0), columns = info.getInt(4);
+        rank = 0;
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            for (int column = 0; column < columns; column++) {
+                int offset = 4 * (2 + 3 * (phrase * columns + column));
+                int hits = info.getInt(offset), totalHits = info.getInt(offset + 4);
+                if (hits > 0) {
+                    double weight = column < COLUMN_WEIGHTS.length ? COLUMN_WEIGHTS[column] : 1.0;
+                    rank += weight * hits / totalHits;
+                }
+            }
+        }
+        return rank;
+    }
+}
@@ -0,0 +1,105 @@
+package edu.moravian.csci299.mocalendar;
+
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Arrays;
+
+/**
+ * The times at which the app reached each milestone of starting up, in ms since the process
+ * started. Each milestone is only recorded the first time it is reached, so later openings of the
+ * list do not overwrite the cold start. In debug builds the times are logged once the first list
+ * is shown.
+ *
+ * The start of the process is only known on Android 7.0 (API 24) and later. On older versions the
+ * times are instead measured from when this class was loaded (the TRACE_LOADED milestone, early in
+ * creating the application) and PROCESS_START is never recorded, so the times there leave out
+ * the time spent starting the process.
+ */
+public final class StartupTrace {
+    private static final String TAG = "StartupTrace";
+
+    /** The milestones of starting up, in the order they are normally reached. */
+    public enum Milestone {
+        /** The process was started, which is only known on API 24 and later. */
+        PROCESS_START,
+        /** This class was loaded, which the times are measured from when the process start is unknown. */
+        TRACE_LOADED,
+        /** The application was created. */
+        APPLICATION_CREATED,
+        /** The database was opened (and migrated if needed). */
+        DATABASE_OPEN,
+        /** The events of today were loaded into memory ahead of being asked for. */
+        FIRST_DAY_LOADED,
+        /** The first list of events was shown. */
+        FIRST_LIST_RENDERED,
+    }
+
+    // the elapsed realtime at which this class was loaded, at which the process started (or 0 if
+    // it is not known), and at which each milestone was reached (or 0 if it has not been yet)
+    private static final long traceLoaded = SystemClock.elapsedRealtime();
+    private static final long processStart = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+            ? Process.getStartElapsedRealtime() : 0;
+    private static final long[] times = new long[Milestone.values().length];
+    static { times[Milestone.TRACE_LOADED.ordinal()] = traceLoaded; }
+
+    // the elapsed realtime the times are measured from
+    private static final long origin = processStart != 0 ? processStart : traceLoaded;
+
+    private StartupTrace() { }
+
+    /**
+     * Record that a milestone has been reached, unless it has been already.
+     * @param milestone the milestone reached
+     */
+    public static void record(Milestone milestone) {
+        synchronized (times) {
+            if (times[milestone.ordinal()] != 0) { return; }
+            if (milestone == Milestone.PROCESS_START) { times[milestone.ordinal()] = processStart; }
+            else if (milestone == Milestone.TRACE_LOADED) { times[milestone.ordinal()] = traceLoaded; }
+            else { times[milestone.ordinal()] = SystemClock.elapsedRealtime(); }
+        }
+        if (milestone == Milestone.FIRST_LIST_RENDERED && BuildConfig.DEBUG) { Log.d(TAG, dump()); }
+    }
+
+    /**
+     * @param milestone the milestone to get the time of
+     * @return the time the milestone was reached in ms since the process started, or -1 if it has
+     *         not been reached
+     */
+    public static long get(Milestone milestone) {
+        synchronized (times) {
+            long time = times[milestone.ordinal()];
+            return time == 0 ? -1 : time - origin;
+        }
+    }
+
+    /**
+     * Forget all of the milestones reached, except when this class was loaded, so that they can be
+     * recorded again.
+     */
+    @VisibleForTesting
+    static void reset() {
+        synchronized (times) {
+            Arrays.fill(times, 0);
+            times[Milestone.TRACE_LOADED.ordinal()] = traceLoaded;
+        }
+    }
+
+    /**
+     * @return the times of all milestones reached so far, one per line
+     */
+    public static String dump() {
+        StringBuilder dump = new StringBuilder(processStart != 0 ? "Startup milestones (ms since process start):"
+                : "Startup milestones (ms since StartupTrace was loaded, the process start is unknown):");
+        for (Milestone milestone : Milestone.values()) {
+            long time = get(milestone);
+            if (time >= 0) { dump.append('\n').append(milestone).append(": ").append(time); }
+        }
+        return dump.toString();
+    }
+}
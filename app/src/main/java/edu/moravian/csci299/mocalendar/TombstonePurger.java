@@ -0,0 +1,73 @@
+package edu.moravian.csci299.mocalendar;
+
+import java.util.Date;
+
+/**
+ * Removes events for good once they have been removed for longer than TOMBSTONE_LIFETIME. Until
+ * then a removed event is only marked as deleted so that removing it can be undone. Purges run on
+ * the write lane as bulk writes, and are only scheduled while there are removed events that could
+ * need purging.
+ */
+class TombstonePurger {
+    // How long a removed event is kept so that removing it can be undone, in ms
+    static final long TOMBSTONE_LIFETIME = 60 * 1000;
+
+    private final AppDatabase database;
+    private final CalendarDao calendarDao;
+    private final WriteLane writeLane;
+    private final DataLayerStats stats;
+
+    // When an event was last removed, and if a purge of removed events is scheduled
+    private long lastRemoved;
+    private boolean purgeScheduled;
+
+    TombstonePurger(AppDatabase database, WriteLane writeLane, DataLayerStats stats) {
+        this.database = database;
+        this.calendarDao = database.calendarDao();
+        this.writeLane = writeLane;
+        this.stats = stats;
+    }
+
+    /**
+     * Purge any events removed the last time the app ran, once starting up has settled down.
+     */
+    void start() { schedulePurge(TOMBSTONE_LIFETIME); }
+
+    /**
+     * Note that events were just removed, so that they are purged once they are old enough.
+     */
+    void onEventsRemoved() {
+        synchronized (this) { lastRemoved = System.currentTimeMillis(); }
+        schedulePurge(TOMBSTONE_LIFETIME);
+    }
+
+    /**
+     * Schedule a purge of removed events on the write lane as a bulk write, unless one is already
+     * scheduled.
+     * @param delay how long to wait before purging, in ms
+     */
+    private void schedulePurge(long delay) {
+        synchronized (this) {
+            if (purgeScheduled) { return; }
+            purgeScheduled = true;
+        }
+        writeLane.schedule(this::purgeDeletedEvents, delay, WriteLane.Priority.BULK);
+    }
+
+    /**
+     * Remove the events that were removed more than TOMBSTONE_LIFETIME ago for good, all in one
+     * statement, then give the freed space back with an incremental vacuum. If events were removed
+     * more recently, another purge is scheduled for once they are old enough. Runs on the write
+     * lane.
+     */
+    private void purgeDeletedEvents() {
+        long before = System.currentTimeMillis() - TOMBSTONE_LIFETIME, newest;
+        synchronized (this) {
+            purgeScheduled = false;
+            newest = lastRemoved;
+        }
+        int purged = stats.time("purgeDeletedEvents", () -> calendarDao.purgeDeletedEvents(new Date(before)));
+        if (purged > 0) { stats.time("incrementalVacuum", database::incrementalVacuum); }
+        if (newest >= before) { schedulePurge(newest - before + 1); }
+    }
+}
@@ -0,0 +1,93 @@
+package edu.moravian.csci299.mocalendar;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * The adapter for a RecyclerView list to show the events of a week under a heading for each day.
+ */
+class WeekAdapter extends ListAdapter<ListViewModel.WeekRow, RecyclerView.ViewHolder> {
+    private static final int TYPE_HEADING = 0, TYPE_EVENT = 1;
+
+    /**
+     * How rows of the week view are compared to find which rows changed. An event that lasts more
+     * than one day has a row on each of them, so the day tells them apart.
+     */
+    private static final DiffUtil.ItemCallback<ListViewModel.WeekRow> ROW_DIFF = new DiffUtil.ItemCallback<ListViewModel.WeekRow>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull ListViewModel.WeekRow oldItem, @NonNull ListViewModel.WeekRow newItem) {
+            if (oldItem.day != newItem.day || (oldItem.event == null) != (newItem.event == null)) { return false; }
+            return oldItem.event == null || EventHolder.DIFF.areItemsTheSame(oldItem.event, newItem.event);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull ListViewModel.WeekRow oldItem, @NonNull ListViewModel.WeekRow newItem) {
+            return oldItem.event == null || EventHolder.DIFF.areContentsTheSame(oldItem.event, newItem.event);
+        }
+    };
+
+    /**
+     * The view holder of the heading of a day in the week view.
+     */
+    static class DayHeadingHolder extends RecyclerView.ViewHolder {
+        final TextView heading;
+
+        DayHeadingHolder(@NonNull View itemView) {
+            super(itemView);
+            heading = itemView.findViewById(R.id.day_heading);
+        }
+    }
+
+    // told when an event is clicked
+    private final EventHolder.OnEventClickListener onClick;
+
+    /**
+     * @param onClick told when an event in the week is clicked
+     */
+    WeekAdapter(EventHolder.OnEventClickListener onClick) {
+        super(ROW_DIFF);
+        this.onClick = onClick;
+    }
+
+    @Override
+    public int getItemViewType(int position) { return getItem(position).event == null ? TYPE_HEADING : TYPE_EVENT; }
+
+    /**
+     * Create and return the holder of a day heading or an event.
+     */
+    @NonNull
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        if (viewType == TYPE_HEADING) {
+            return new DayHeadingHolder(LayoutInflater.from(parent.getContext()).inflate(R.layout.day_heading_item, parent, false));
+        }
+        return EventHolder.create(parent, onClick);
+    }
+
+    /**
+     * Bind the given holder to a row of the week.
+     */
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        ListViewModel.WeekRow row = getItem(position);
+        if (holder instanceof DayHeadingHolder) {
+            ((DayHeadingHolder) holder).heading.setText(DateUtils.toFullDateString(row.day));
+        } else {
+            ((EventHolder) holder).bind(row.event, false);
+        }
+    }
+
+    /**
+     * @param position the position of a row
+     * @return the event in the row, or null if the row is the heading of a day (which cannot be
+     *         swiped away)
+     */
+    EventSummary getEvent(int position) { return getItem(position).event; }
+}
@@ -0,0 +1,86 @@
+package edu.moravian.csci299.mocalendar;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The single thread that all writes to the database run on. Since SQLite only allows one writer at
+ * a time, having more threads would only make them wait on each other. Tasks have a priority so that
+ * interactive writes (like saving an edited event) run before any waiting bulk jobs (like importing
+ * events). Tasks with the same priority run in the order they were given.
+ */
+public class WriteLane implements Executor {
+    /** The priorities of writes, from most to least urgent */
+    public enum Priority { INTERACTIVE, BULK }
+
+    /** A task along with its priority and the order it was given in */
+    private static class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+        final Runnable task;
+        final Priority priority;
+        final long order;
+        PrioritizedTask(Runnable task, Priority priority, long order) {
+            this.task = task;
+            this.priority = priority;
+            this.order = order;
+        }
+
+        @Override
+        public void run() { task.run(); }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            int cmp = priority.compareTo(other.priority);
+            return cmp != 0 ? cmp : Long.compare(order, other.order);
+        }
+    }
+
+    private final DataLayerStats stats;
+    private final AtomicLong order = new AtomicLong();
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new PriorityBlockingQueue<>(), task -> new Thread(task, "event-writes"));
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+            task -> {
+                Thread thread = new Thread(task, "event-writes-timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /**
+     * @param stats where to record how long tasks wait on and run on the lane
+     */
+    public WriteLane(DataLayerStats stats) { this.stats = stats; }
+
+    /**
+     * Run a task as an interactive write.
+     * @param task the task to run
+     */
+    @Override
+    public void execute(@NonNull Runnable task) { execute(task, Priority.INTERACTIVE); }
+
+    /**
+     * Run a task with the given priority.
+     * @param task the task to run
+     * @param priority the priority of the task
+     */
+    public void execute(Runnable task, Priority priority) {
+        String lane = priority == Priority.INTERACTIVE ? "writes (interactive)" : "writes (bulk)";
+        executor.execute(new PrioritizedTask(stats.queued(lane, task), priority, order.getAndIncrement()));
+    }
+
+    /**
+     * Run a task with the given priority after a delay.
+     * @param task the task to run
+     * @param delay the delay in ms
+     * @param priority the priority of the task
+     */
+    public void schedule(Runnable task, long delay, Priority priority) {
+        timer.schedule(() -> execute(task, priority), delay, TimeUnit.MILLISECONDS);
+    }
+}
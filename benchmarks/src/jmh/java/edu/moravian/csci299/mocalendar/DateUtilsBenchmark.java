@@ -0,0 +1,95 @@
+package edu.moravian.csci299.mocalendar;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the date math and formatting in DateUtils, using both the Date and the epoch ms
+ * versions. Each call uses the next of a fixed set of random date/times spread over several years
+ * so that the caches of DateUtils see realistic misses.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DateUtilsBenchmark {
+    // the number of random date/times, a power of 2 so the next one is found with a mask
+    private static final int TIMES = 1024;
+
+    private final long[] times = new long[TIMES];
+    private final Date[] dates = new Date[TIMES];
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        long start = DateUtils.getDate(2020, 0, 1).getTime();
+        for (int i = 0; i < TIMES; i++) {
+            times[i] = start + (long) (random.nextDouble() * 5 * 365 * 24 * 60 * 60 * 1000L);
+            dates[i] = new Date(times[i]);
+        }
+    }
+
+    /** @return the index of the next date/time to use */
+    private int next() { return next++ & (TIMES - 1); }
+
+    @Benchmark
+    public long combineDateAndTime() {
+        int i = next();
+        return DateUtils.combineDateAndTime(times[i], times[(i + 1) & (TIMES - 1)]);
+    }
+
+    @Benchmark
+    public Date combineDateAndTimeDates() {
+        int i = next();
+        return DateUtils.combineDateAndTime(dates[i], dates[(i + 1) & (TIMES - 1)]);
+    }
+
+    @Benchmark
+    public long fixEndTime() {
+        int i = next();
+        return DateUtils.fixEndTime(times[i], times[(i + 1) & (TIMES - 1)]);
+    }
+
+    @Benchmark
+    public Date fixEndTimeDates() {
+        int i = next();
+        return DateUtils.fixEndTime(dates[i], dates[(i + 1) & (TIMES - 1)]);
+    }
+
+    @Benchmark
+    public long getStartOfDay() { return DateUtils.getStartOfDay(times[next()]); }
+
+    @Benchmark
+    public long getStartOfWeek() { return DateUtils.getStartOfWeek(times[next()]); }
+
+    @Benchmark
+    public int[] getYearMonthDay() { return DateUtils.getYearMonthDay(times[next()]); }
+
+    @Benchmark
+    public String toTimeString() { return DateUtils.toTimeString(times[next()]); }
+
+    @Benchmark
+    public String toDateString() { return DateUtils.toDateString(times[next()]); }
+
+    /** The same day over and over, as when binding a list of the events on one day */
+    @Benchmark
+    public String toDateStringSameDay() { return DateUtils.toDateString(times[0]); }
+
+    @Benchmark
+    public String toFullDateString() { return DateUtils.toFullDateString(times[next()]); }
+
+    /** Formatting with the formatter directly, for comparison with toTimeString() */
+    @Benchmark
+    public String formatTime() {
+        return DateUtils.timeFormat.format(java.time.Instant.ofEpochMilli(times[next()]).atZone(java.time.ZoneId.systemDefault()));
+    }
+}
@@ -0,0 +1,108 @@
+package edu.moravian.csci299.mocalendar;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of day and range lookups in an in-memory event store holding a synthetic calendar.
+ * The events are spread over ten years, so the more events there are the busier each day is: from
+ * about 1 event every 4 days with 1k events to about 270 a day with 1M. Most events last up to a
+ * few hours, some are assignments, some last up to a couple of weeks, and a few repeat weekly.
+ * The free-time and conflict searches over the store are measured on the same calendar.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EventStoreBenchmark {
+    private static final long HOUR = 60 * 60 * 1000L, DAY = 24 * HOUR, WEEK = 7 * DAY;
+    private static final long SPAN = 10 * 365 * DAY;
+    // the number of random days to look up, a power of 2 so the next one is found with a mask
+    private static final int DAYS = 1024;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int eventCount;
+
+    private InMemoryEventStore store;
+    private FreeBusyFinder freeBusyFinder;
+    private ConflictDetector conflictDetector;
+    private long start;
+    private final long[] days = new long[DAYS];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        start = DateUtils.getDate(2020, 0, 1).getTime();
+        List<Event> events = new ArrayList<>(eventCount);
+        for (int i = 0; i < eventCount; i++) {
+            Event event = new Event();
+            event.startTime = new Date(start + (long) (random.nextDouble() * SPAN));
+            int kind = random.nextInt(100);
+            if (kind < 20) {
+                event.type = EventType.ASSIGNMENT;
+            } else {
+                long duration = kind < 95 ? (1 + random.nextInt(4)) * HOUR : (1 + random.nextInt(14)) * DAY;
+                event.endTime = new Date(event.startTime.getTime() + duration);
+            }
+            if (kind == 99) {
+                event.recurrence = "FREQ=WEEKLY;COUNT=" + (1 + random.nextInt(52));
+                event.updateRecurrenceEnd();
+            }
+            events.add(event);
+        }
+        store = new InMemoryEventStore();
+        store.putAll(events);
+        freeBusyFinder = new FreeBusyFinder(store);
+        conflictDetector = new ConflictDetector(store);
+        for (int i = 0; i < DAYS; i++) { days[i] = start + (long) (random.nextDouble() * SPAN); }
+    }
+
+    /** @return the next random date/time to look up */
+    private long next() { return days[next++ & (DAYS - 1)]; }
+
+    @Benchmark
+    public List<Event> eventsOnDay() { return store.getEventsOnDay(next()); }
+
+    @Benchmark
+    public List<Event> eventsOverlappingWeek() {
+        long time = next();
+        return store.getEventsOverlapping(time, time + WEEK);
+    }
+
+    @Benchmark
+    public List<Event> eventsStartingInWeek() {
+        long time = next();
+        return store.getEventsStartingBetween(time, time + WEEK);
+    }
+
+    @Benchmark
+    public List<Event> eventsOverlappingMonth() {
+        long time = next();
+        return store.getEventsOverlapping(time, time + 30 * DAY);
+    }
+
+    @Benchmark
+    public List<FreeBusyFinder.Slot> freeHoursInWeek() {
+        long time = next();
+        return freeBusyFinder.findFree(time, time + WEEK, HOUR);
+    }
+
+    @Benchmark
+    public List<ConflictDetector.Conflict> conflictsInWeek() {
+        long time = next();
+        return conflictDetector.findConflictsBetween(time, time + WEEK);
+    }
+}
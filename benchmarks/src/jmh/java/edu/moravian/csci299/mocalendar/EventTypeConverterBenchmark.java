@@ -0,0 +1,53 @@
+package edu.moravian.csci299.mocalendar;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of converting each type stored in the database to and from its column value and back,
+ * which happens for every row read or written.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EventTypeConverterBenchmark {
+    private final EventTypeConverter converter = new EventTypeConverter();
+    private final EventType[] types = EventType.values();
+    private Date date;
+    private UUID uuid;
+    private List<Date> exceptions;
+    private int next;
+
+    @Setup
+    public void setup() {
+        date = new Date();
+        uuid = UUID.randomUUID();
+        exceptions = new ArrayList<>();
+        for (int i = 0; i < 10; i++) { exceptions.add(new Date(date.getTime() + i * 7 * 24 * 60 * 60 * 1000L)); }
+    }
+
+    @Benchmark
+    public Date dateRoundTrip() { return converter.toDate(converter.fromDate(date)); }
+
+    @Benchmark
+    public UUID uuidRoundTrip() { return converter.toUUID(converter.fromUUID(uuid)); }
+
+    @Benchmark
+    public EventType eventTypeRoundTrip() {
+        return converter.toEventType(converter.fromEventType(types[next++ % types.length]));
+    }
+
+    @Benchmark
+    public List<Date> datesRoundTrip() { return converter.toDates(converter.fromDates(exceptions)); }
+}
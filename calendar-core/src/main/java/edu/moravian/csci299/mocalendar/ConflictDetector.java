@@ -0,0 +1,77 @@
+package edu.moravian.csci299.mocalendar;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+/**
+ * Finds events whose times conflict. Only the events that could conflict are pulled from the event
+ * store, through its range query, and they are then swept over in order of start time while
+ * keeping the events still going on in a heap ordered by end time. This makes checking a single
+ * event proportional to the number of events around it and listing every conflict within a range
+ * O(n log n) (plus the number of conflicts found) instead of comparing every pair of events.
+ *
+ * Two events conflict if each starts before the other ends, so an event ending at the time another
+ * starts is not a conflict. Assignments (which have no end time) are due dates rather than time
+ * that is busy, so they never conflict.
+ */
+public class ConflictDetector {
+    /** A pair of events (or occurrences) whose times overlap, the first starting no later than the second. */
+    public static class Conflict {
+        public final Event first, second;
+
+        Conflict(Event first, Event second) {
+            this.first = first;
+            this.second = second;
+        }
+    }
+
+    private final EventStore store;
+
+    /**
+     * @param store the events to check for conflicts with
+     */
+    public ConflictDetector(EventStore store) { this.store = store; }
+
+    /**
+     * Find the events that conflict with a time. Other occurrences of the event itself are never
+     * conflicts.
+     * @param id the id of the event being checked, or null for a new time
+     * @param start the start of the time in ms since the epoch
+     * @param end the end of the time in ms since the epoch
+     * @return the conflicting events (or occurrences) ordered by start time
+     */
+    public List<Event> findConflicts(UUID id, long start, long end) {
+        if (end <= start) { return Collections.emptyList(); }
+        List<Event> conflicts = new ArrayList<>();
+        for (Event event : store.getEventsOverlapping(start, end)) {
+            if (event.endTime != null && !event.id.equals(id)
+                    && event.startTime.getTime() < end && event.endTime.getTime() > start) {
+                conflicts.add(event);
+            }
+        }
+        return conflicts;
+    }
+
+    /**
+     * Find every conflict between events that overlap a range of time, such as a week.
+     * @param start the start of the range in ms since the epoch
+     * @param end the end of the range in ms since the epoch (exclusive)
+     * @return the conflicts ordered by the start of the later event of each
+     */
+    public List<Conflict> findConflictsBetween(long start, long end) {
+        List<Conflict> conflicts = new ArrayList<>();
+        // the events that have started but not ended as of the event being swept over
+        PriorityQueue<Event> ongoing = new PriorityQueue<>(16, (a, b) -> a.endTime.compareTo(b.endTime));
+        for (Event event : store.getEventsOverlapping(start, end)) {
+            if (event.endTime == null || !event.endTime.after(event.startTime)) { continue; }
+            long eventStart = event.startTime.getTime();
+            while (!ongoing.isEmpty() && ongoing.peek().endTime.getTime() <= eventStart) { ongoing.poll(); }
+            for (Event other : ongoing) { conflicts.add(new Conflict(other, event)); }
+            ongoing.add(event);
+        }
+        return conflicts;
+    }
+}
@@ -0,0 +1,416 @@
+package edu.moravian.csci299.mocalendar;
+
+import androidx.annotation.NonNull;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.WeekFields;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * This class provides a ton a static utility functions for working with Date
+ * objects. All of these are completed and working, but you will likely need to
+ * use most of them so read them over.
+ *
+ * In Java, Date objects actually contain information about the year, month,
+ * day, hour, minute, and second. This makes talking about them very confusing
+ * since saying "Date" could refer to an object that is just a date (year,
+ * month, and day), an object that is just a time (hours, minutes, seconds), or
+ * both. In the documentation for this function, capitalized Date refers to the
+ * Java class and not specific date or time. Lowercase date refers to just a
+ * date (year, month, and day). The phrase date/time refers to having/using
+ * both the date and time of a Date object.
+ */
+public class DateUtils {
+    // the lengths of a minute, an hour, and a day in ms
+    private static final long MINUTE = 60 * 1000L, HOUR = 60 * MINUTE, DAY = 24 * HOUR;
+
+    /**
+     * Formatter to convert dates to text like "Thursday April 1, 2021". Includes the weekday.
+     */
+    public static final DateTimeFormatter fullDateFormat = DateTimeFormatter.ofPattern("EEEE MMMM d, yyyy", Locale.US);
+
+    /**
+     * Formatter to convert dates to text like "April 1, 2021". Does not include the weekday.
+     */
+    public static final DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("MMMM d, yyyy", Locale.US);
+
+    /**
+     * Formatter for converting times to text like "3:42 PM".
+     */
+    public static final DateTimeFormatter timeFormat = DateTimeFormatter.ofPattern("h:mm a", Locale.US);
+
+    /**
+     * The offset of the time zone during the period between two of its transitions, along with the
+     * periods just before and after it so that dates on either side of a change to or from daylight
+     * saving time do not keep replacing each other.
+     */
+    private static final class ZoneOffsets {
+        final ZoneId zone;
+        final long earlierFrom, from, until, laterUntil;  // the bounds of the periods, in ms since the epoch
+        final int earlierOffset, offset, laterOffset;  // the offsets during the periods, in ms
+
+        ZoneOffsets(ZoneId zone, long time) {
+            this.zone = zone;
+            ZoneRules rules = zone.getRules();
+            Instant instant = Instant.ofEpochMilli(time);
+            offset = rules.getOffset(instant).getTotalSeconds() * 1000;
+            ZoneOffsetTransition previous = rules.previousTransition(instant.plusSeconds(1));
+            ZoneOffsetTransition next = rules.nextTransition(instant);
+            from = previous == null ? Long.MIN_VALUE : previous.toEpochSecond() * 1000;
+            until = next == null ? Long.MAX_VALUE : next.toEpochSecond() * 1000;
+            if (previous == null) {
+                earlierFrom = from;
+                earlierOffset = offset;
+            } else {
+                ZoneOffsetTransition before = rules.previousTransition(previous.getInstant());
+                earlierFrom = before == null ? Long.MIN_VALUE : before.toEpochSecond() * 1000;
+                earlierOffset = previous.getOffsetBefore().getTotalSeconds() * 1000;
+            }
+            if (next == null) {
+                laterUntil = until;
+                laterOffset = offset;
+            } else {
+                ZoneOffsetTransition after = rules.nextTransition(next.getInstant());
+                laterUntil = after == null ? Long.MAX_VALUE : after.toEpochSecond() * 1000;
+                laterOffset = next.getOffsetAfter().getTotalSeconds() * 1000;
+            }
+        }
+    }
+
+    /**
+     * A date that was formatted, kept so that formatting the same day again is free.
+     */
+    private static final class FormattedDay {
+        final long epochDay;
+        final String text;
+
+        FormattedDay(long epochDay, String text) {
+            this.epochDay = epochDay;
+            this.text = text;
+        }
+    }
+
+    // the cached offsets of the time zone and the first day of the week (1 for Monday to 7 for Sunday)
+    private static volatile ZoneOffsets offsets = new ZoneOffsets(ZoneId.systemDefault(), System.currentTimeMillis());
+    private static volatile int firstDayOfWeek = WeekFields.of(Locale.getDefault()).getFirstDayOfWeek().getValue();
+
+    // the last date formatted by each of the date formatters
+    private static volatile FormattedDay lastFullDate = new FormattedDay(Long.MIN_VALUE, null);
+    private static volatile FormattedDay lastDate = new FormattedDay(Long.MIN_VALUE, null);
+
+    /**
+     * Reload the time zone and locale of the device. Must be called when either of them changes.
+     */
+    public static void resetDefaults() {
+        offsets = new ZoneOffsets(ZoneId.systemDefault(), System.currentTimeMillis());
+        firstDayOfWeek = WeekFields.of(Locale.getDefault()).getFirstDayOfWeek().getValue();
+    }
+
+    /**
+     * Returns the given date/time or the current date/time if the given Date is null.
+     * @param date the date/time to return (or null to return the current date/time)
+     * @return a date/time, either the one given or the current date/time
+     */
+    @NonNull
+    public static Date useDateOrNow(Date date) {
+        return date == null ? new Date() : date;
+    }
+
+    /**
+     * Gets a Date object for the given year, month, and day. The time is at
+     * the start of that day (i.e. midnight). Months and days past the end of
+     * the year or month roll over into the next one.
+     * @param year the year (e.g. 2021)
+     * @param month the month (0-11)
+     * @param dayOfMonth the day of that month (1-31)
+     * @return a Date object for midnight at the start of that day
+     */
+    public static Date getDate(int year, int month, int dayOfMonth) {
+        LocalDate date = LocalDate.of(year, 1, 1).plusMonths(month).plusDays(dayOfMonth - 1);
+        return new Date(startOfEpochDay(date.toEpochDay()));
+    }
+
+    /**
+     * Gets a Date object for the start of the day (midnight) that contains the given Date.
+     * @param date the Date within the day
+     * @return a Date object for midnight at the start of that day
+     */
+    public static Date getStartOfDay(Date date) { return new Date(getStartOfDay(date.getTime())); }
+
+    /**
+     * Gets the start of the day (midnight) that contains the given date/time.
+     * @param time the date/time within the day in ms since the epoch
+     * @return midnight at the start of that day in ms since the epoch
+     */
+    public static long getStartOfDay(long time) { return startOfEpochDay(epochDay(time)); }
+
+    /**
+     * Moves a date/time by a number of days, keeping the same time of day even across a change of
+     * the time zone's offset (so a day is not always 24 hours).
+     * @param time the date/time in ms since the epoch
+     * @param days the number of days to move it (may be negative)
+     * @return the moved date/time in ms since the epoch
+     */
+    public static long addDays(long time, int days) { return fromLocalMillis(toLocalMillis(time) + days * DAY); }
+
+    /**
+     * Gets a Date object for the start of the week (midnight on the first day of the week) that
+     * contains the given Date.
+     * @param date the Date within the week
+     * @return a Date object for midnight at the start of that week
+     */
+    public static Date getStartOfWeek(Date date) { return new Date(getStartOfWeek(date.getTime())); }
+
+    /**
+     * Gets the start of the week (midnight on the first day of the week) that contains the given
+     * date/time. The first day of the week depends on the locale.
+     * @param time the date/time within the week in ms since the epoch
+     * @return midnight at the start of that week in ms since the epoch
+     */
+    public static long getStartOfWeek(long time) {
+        long day = epochDay(time);
+        // 1970-01-01 was a Thursday, so this is 1 for Monday to 7 for Sunday
+        int dayOfWeek = (int) Math.floorMod(day + 3, 7) + 1;
+        return startOfEpochDay(day - Math.floorMod(dayOfWeek - firstDayOfWeek, 7));
+    }
+
+    /**
+     * Gets the year, month, and day from a Date object. The time is ignored.
+     * @param date the Date object to extract information from
+     * @return an array of the year, month (0-11), and day from that Date
+     */
+    public static int[] getYearMonthDay(Date date) { return getYearMonthDay(date.getTime()); }
+
+    /**
+     * Gets the year, month, and day from a date/time. The time is ignored.
+     * @param time the date/time in ms since the epoch
+     * @return an array of the year, month (0-11), and day from that date/time
+     */
+    public static int[] getYearMonthDay(long time) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay(time));
+        return new int[]{date.getYear(), date.getMonthValue() - 1, date.getDayOfMonth()};
+    }
+
+    /**
+     * Gets a Date object for the given hour and minute. The time is put on an
+     * arbitrary day. Hours and minutes past the end of the day or hour roll
+     * over into the next one.
+     * @param hour the hour (0-23)
+     * @param minute the minute (0-59)
+     * @return a Date object for the given time on an arbitrary day
+     */
+    public static Date getTime(int hour, int minute) {
+        long today = epochDay(System.currentTimeMillis());
+        return new Date(fromLocalMillis(today * DAY + hour * HOUR + minute * MINUTE));
+    }
+
+    /**
+     * Gets the hour and minute from a Date object. The date is ignored.
+     * @param date the Date object to extract information from
+     * @return an array of the hour (0-11) and minute from that Date
+     */
+    public static int[] getHourMinute(Date date) { return getHourMinute(date.getTime()); }
+
+    /**
+     * Gets the hour and minute from a date/time. The date is ignored.
+     * @param time the date/time in ms since the epoch
+     * @return an array of the hour (0-11) and minute from that date/time
+     */
+    public static int[] getHourMinute(long time) {
+        int minuteOfDay = minuteOfDay(time);
+        return new int[]{minuteOfDay / 60 % 12, minuteOfDay % 60};
+    }
+
+    /**
+     * Returns a new Date that has the date of the first argument and the time
+     * of the second argument. The time on the date is ignored and the date on
+     * the time is ignored.
+     * @param date the Date to use for the date portion
+     * @param time the Date to use for the time portion
+     * @return a Date that is the combination of the arguments given
+     */
+    @NonNull
+    public static Date combineDateAndTime(Date date, Date time) {
+        return new Date(combineDateAndTime(date.getTime(), time.getTime()));
+    }
+
+    /**
+     * Combines the date of the first argument and the time (to the second) of the second argument.
+     * @param date the date/time to use for the date portion in ms since the epoch
+     * @param time the date/time to use for the time portion in ms since the epoch
+     * @return the combination of the arguments in ms since the epoch
+     */
+    public static long combineDateAndTime(long date, long time) {
+        long timeOfDay = Math.floorMod(toLocalMillis(time), DAY);
+        return fromLocalMillis(epochDay(date) * DAY + timeOfDay - timeOfDay % 1000);
+    }
+
+    /**
+     * Gets the new end Date based on how the start time changed, keeping the
+     * end time the same amount of time after the start that it was originally.
+     *
+     * @param origStart the original start Date
+     * @param newStart the new start Date
+     * @param origEnd the original end Date
+     * @return the new end Date to keep the amount of time between start and
+     *         end the same
+     */
+    public static Date getNewEndTime(Date origStart, Date newStart, Date origEnd) {
+        return new Date(newStart.getTime() + origEnd.getTime() - origStart.getTime());
+    }
+
+    /**
+     * Fixes the end time so that it comes after the given start time and at
+     * most 24 hours after it. If the end time comes before the start time then
+     * it is moved to the next day but at the same time. If it after the start
+     * time but by more than 24 hours it keeps the same time but its date is
+     * changed to the same day as the start day.
+     *
+     * @param start the reference Date to determine how to move the end Date
+     * @param end the Date to adjust to make sure comes after start by at most 24 hours
+     * @return the adjusted end Date (or possibly the same end Date if no adjustment needed)
+     */
+    public static Date fixEndTime(Date start, Date end) {
+        long fixed = fixEndTime(start.getTime(), end.getTime());
+        return fixed == end.getTime() ? end : new Date(fixed);
+    }
+
+    /**
+     * Fixes the end time so that it comes after the given start time and at most 24 hours after
+     * it. See fixEndTime(Date, Date).
+     * @param start the reference date/time in ms since the epoch
+     * @param end the date/time to adjust in ms since the epoch
+     * @return the adjusted end date/time in ms since the epoch
+     */
+    public static long fixEndTime(long start, long end) {
+        end = combineDateAndTime(start, end);
+        // move the end date to the day after start but at the same time
+        return end < start ? fromLocalMillis(toLocalMillis(end) + DAY) : end;
+    }
+
+    /**
+     * Get the textual representation of a date including the day of the week like
+     * "Thursday April 1, 2021".
+     * @param date the Date to get the information from
+     * @return the String like "Tuesday April 1, 2021"
+     */
+    public static String toFullDateString(Date date) { return toFullDateString(date.getTime()); }
+
+    /**
+     * Get the textual representation of a date including the day of the week like
+     * "Thursday April 1, 2021".
+     * @param time the date/time in ms since the epoch
+     * @return the String like "Tuesday April 1, 2021"
+     */
+    public static String toFullDateString(long time) {
+        FormattedDay last = lastFullDate;
+        long day = epochDay(time);
+        if (last.epochDay != day) {
+            last = new FormattedDay(day, fullDateFormat.format(LocalDate.ofEpochDay(day)));
+            lastFullDate = last;
+        }
+        return last.text;
+    }
+
+    /**
+     * Get the textual representation of a date NOT including the day of the week like
+     * "April 1, 2021".
+     * @param date the Date to get the information from
+     * @return the String like "April 1, 2021"
+     */
+    public static String toDateString(Date date) { return toDateString(date.getTime()); }
+
+    /**
+     * Get the textual representation of a date NOT including the day of the week like
+     * "April 1, 2021".
+     * @param time the date/time in ms since the epoch
+     * @return the String like "April 1, 2021"
+     */
+    public static String toDateString(long time) {
+        FormattedDay last = lastDate;
+        long day = epochDay(time);
+        if (last.epochDay != day) {
+            last = new FormattedDay(day, dateFormat.format(LocalDate.ofEpochDay(day)));
+            lastDate = last;
+        }
+        return last.text;
+    }
+
+    /**
+     * Get the textual representation of the time like "3:42 PM".
+     * @param date the Date to get the information from
+     * @return the String like "3:42 PM"
+     */
+    public static String toTimeString(Date date) { return toTimeString(date.getTime()); }
+
+    /**
+     * Get the textual representation of the time like "3:42 PM". This is the same as formatting
+     * with timeFormat but is built directly from the minute of the day.
+     * @param time the date/time in ms since the epoch
+     * @return the String like "3:42 PM"
+     */
+    public static String toTimeString(long time) {
+        int minuteOfDay = minuteOfDay(time);
+        int hour = minuteOfDay / 60, minute = minuteOfDay % 60;
+        return new StringBuilder(8).append(hour % 12 == 0 ? 12 : hour % 12).append(':')
+                .append((char) ('0' + minute / 10)).append((char) ('0' + minute % 10))
+                .append(hour < 12 ? " AM" : " PM").toString();
+    }
+
+    /**
+     * @return the offset of the time zone at the given date/time in ms
+     */
+    private static int offsetAt(long time) {
+        ZoneOffsets current = offsets;
+        if (time >= current.from && time < current.until) { return current.offset; }
+        if (time >= current.earlierFrom && time < current.from) { return current.earlierOffset; }
+        if (time >= current.until && time < current.laterUntil) { return current.laterOffset; }
+        current = new ZoneOffsets(current.zone, time);
+        offsets = current;
+        return current.offset;
+    }
+
+    /**
+     * @return the given date/time in ms since the epoch as if the time zone were UTC
+     */
+    private static long toLocalMillis(long time) { return time + offsetAt(time); }
+
+    /**
+     * Convert a local date/time back to ms since the epoch. If the local date/time is skipped by a
+     * transition of the time zone, it is moved later by the length of the gap.
+     * @param local the local date/time in ms since the epoch as if the time zone were UTC
+     * @return the date/time in ms since the epoch
+     */
+    private static long fromLocalMillis(long local) {
+        // the offset near the local time is almost always the offset at the time itself
+        int offset = offsetAt(local);
+        long time = local - offset;
+        if (offsetAt(time) == offset) { return time; }
+        LocalDateTime dateTime = LocalDateTime.ofEpochSecond(Math.floorDiv(local, 1000),
+                (int) Math.floorMod(local, 1000) * 1000000, ZoneOffset.UTC);
+        return dateTime.atZone(offsets.zone).toInstant().toEpochMilli();
+    }
+
+    /**
+     * @return the number of days since 1970-01-01 of the day containing the given date/time
+     */
+    private static long epochDay(long time) { return Math.floorDiv(toLocalMillis(time), DAY); }
+
+    /**
+     * @return midnight at the start of the given number of days since 1970-01-01 in ms since the epoch
+     */
+    private static long startOfEpochDay(long epochDay) { return fromLocalMillis(epochDay * DAY); }
+
+    /**
+     * @return the number of minutes since midnight at the given date/time
+     */
+    private static int minuteOfDay(long time) { return (int) (Math.floorMod(toLocalMillis(time), DAY) / MINUTE); }
+}
@@ -0,0 +1,238 @@
+package edu.moravian.csci299.mocalendar;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.UUID;
+
+/**
+ * An Event object contains all of the information about a single event or
+ * assignment due date.
+ *
+ * The start time is indexed so that range queries on the calendar do not need to scan the entire
+ * table, and the recurrence rule is indexed along with it so that repeating and non-repeating
+ * events can each be searched on their own. The type is indexed so events can be filtered by type.
+ *
+ * An event can repeat following a recurrence rule (see Recurrence). Only the first occurrence is
+ * stored, the rest are generated when needed by occurrencesBetween(). Single occurrences can be
+ * removed by adding them as exceptions or changed by overriding them with a separate event (see
+ * overrideOccurrence()).
+ *
+ * Deleting an event only marks it with the time it was deleted (see deletedAt) and it is removed
+ * for good later, so a delete can be undone for a short time.
+ *
+ * NOTE: this class is complete.
+ */
+@Entity(indices = {@Index("startTime"), @Index("type"), @Index({"recurrence", "startTime"})})
+public class Event {
+    /**
+     * The id of the event is the primary key in the database.
+     */
+    @PrimaryKey
+    @NonNull
+    public UUID id = UUID.randomUUID();
+    /**
+     * Start time for the event. If the endTIme is null, this represents the due date.
+     */
+    @NonNull
+    public Date startTime = new Date();
+    /**
+     * The ending time. If the endTime is null then this "event" is actually an
+     * assignment with a due date (the start time).
+     */
+    public Date endTime = null;
+    /**
+     * Name of the event.
+     */
+    @NonNull
+    public String name = "New Event";
+    /**
+     * The type of the event.
+     */
+    @NonNull
+    public EventType type = EventType.GENERIC;
+    /**
+     * The description of the event.
+     */
+    @NonNull
+    public String description = "";
+    /**
+     * The rule for how this event repeats, like "FREQ=WEEKLY;BYDAY=MO,WE", or null if it does not.
+     */
+    public String recurrence = null;
+    /**
+     * When the last occurrence of a repeating event ends, or null if it repeats forever. This is
+     * kept up to date by updateRecurrenceEnd() so that repeating events can be found by range.
+     */
+    public Date recurrenceEnd = null;
+    /**
+     * The start times of occurrences of a repeating event that have been removed.
+     */
+    @NonNull
+    @ColumnInfo(defaultValue = "")
+    public List<Date> recurrenceExceptions = new ArrayList<>();
+    /**
+     * If this event replaces a single occurrence of a repeating event, the id of that event.
+     */
+    public UUID recurrenceParentId = null;
+    /**
+     * If this event replaces a single occurrence of a repeating event, the start time of the
+     * occurrence it replaces (which stays the same when this event is moved).
+     */
+    public Date recurrenceId = null;
+    /**
+     * When the event was deleted, or null if it has not been. A deleted event is kept as a
+     * tombstone, left out of every query, until it is purged so that deleting it can be undone.
+     */
+    public Date deletedAt = null;
+
+    /**
+     * Update when the last occurrence of this event ends from its start time, end time, and
+     * recurrence rule.
+     */
+    public void updateRecurrenceEnd() {
+        Recurrence rule = Recurrence.parseOrNull(recurrence, TimeZone.getDefault());
+        Long last = rule == null ? null : rule.lastOccurrence(startTime.getTime(), TimeZone.getDefault());
+        recurrenceEnd = last == null ? null : new Date(last + getDuration());
+    }
+
+    /**
+     * @return the duration of this event in ms, 0 for an assignment
+     */
+    public long getDuration() {
+        return endTime == null ? 0 : Math.max(0, endTime.getTime() - startTime.getTime());
+    }
+
+    /**
+     * Get the occurrences of this event that overlap a range of time. An event that does not repeat
+     * has just itself as an occurrence (if it overlaps the range). Each occurrence of a repeating
+     * event is a copy with the same id but a different start and end time.
+     * @param start the start of the range in ms
+     * @param end the end of the range in ms (exclusive)
+     * @return the occurrences in order
+     */
+    public List<Event> occurrencesBetween(long start, long end) {
+        Recurrence rule = Recurrence.parseOrNull(recurrence, TimeZone.getDefault());
+        if (rule == null) {
+            long last = startTime.getTime() + getDuration();
+            boolean overlaps = startTime.getTime() < end && last >= start;
+            return overlaps ? Collections.singletonList(this) : Collections.emptyList();
+        }
+        return occurrencesBetween(rule, getExceptionTimes(), start, end);
+    }
+
+    /**
+     * Get the occurrences of this repeating event that overlap a range of time using its rule and
+     * exceptions that were already parsed, for callers that expand the same event many times.
+     * @param rule the parsed recurrence rule of this event
+     * @param exceptions the start times of the occurrences to skip (see getExceptionTimes())
+     * @param start the start of the range in ms
+     * @param end the end of the range in ms (exclusive)
+     * @return the occurrences in order
+     */
+    public List<Event> occurrencesBetween(Recurrence rule, Set<Long> exceptions, long start, long end) {
+        List<Event> occurrences = new ArrayList<>();
+        for (long occurrence : rule.occurrencesBetween(startTime.getTime(), getDuration(), start, end,
+                exceptions, TimeZone.getDefault())) {
+            occurrences.add(copyAt(occurrence, id));
+        }
+        return occurrences;
+    }
+
+    /**
+     * @return the start times of the occurrences skipped by this repeating event in ms
+     */
+    public Set<Long> getExceptionTimes() {
+        Set<Long> exceptions = new HashSet<>();
+        for (Date exception : recurrenceExceptions) { exceptions.add(exception.getTime()); }
+        return exceptions;
+    }
+
+    /**
+     * Replace a single occurrence of this repeating event with a separate event that can be changed
+     * on its own. The occurrence is added as an exception of this event, so both this event and the
+     * returned event need to be written.
+     * @param occurrenceStart the start time of the occurrence in ms
+     * @return the new event for that occurrence
+     */
+    public Event overrideOccurrence(long occurrenceStart) {
+        recurrenceExceptions.add(new Date(occurrenceStart));
+        Event override = copyAt(occurrenceStart, overrideId(id, occurrenceStart));
+        override.recurrence = null;
+        override.recurrenceEnd = null;
+        override.recurrenceExceptions = new ArrayList<>();
+        override.recurrenceParentId = id;
+        override.recurrenceId = new Date(occurrenceStart);
+        return override;
+    }
+
+    /**
+     * Get the id of the event that replaces an occurrence of a repeating event. The id only depends
+     * on the repeating event and the occurrence, so the same occurrence read from an iCalendar file
+     * again gets the same id.
+     * @param parentId the id of the repeating event
+     * @param occurrenceStart the start time of the occurrence in ms
+     * @return the id of the event replacing the occurrence
+     */
+    public static UUID overrideId(UUID parentId, long occurrenceStart) {
+        return UUID.nameUUIDFromBytes((parentId + "/" + occurrenceStart).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return a copy of this event, with its own list of exceptions
+     */
+    public Event copy() {
+        Event copy = copyAt(startTime.getTime(), id);
+        copy.endTime = endTime == null ? null : new Date(endTime.getTime());
+        copy.deletedAt = deletedAt;
+        return copy;
+    }
+
+    /**
+     * @return a copy of this event with the given id moved to start at the given time
+     */
+    private Event copyAt(long start, UUID id) {
+        Event copy = new Event();
+        copy.id = id;
+        copy.startTime = new Date(start);
+        copy.endTime = endTime == null ? null : new Date(start + getDuration());
+        copy.name = name;
+        copy.type = type;
+        copy.description = description;
+        copy.recurrence = recurrence;
+        copy.recurrenceEnd = recurrenceEnd;
+        copy.recurrenceExceptions = new ArrayList<>(recurrenceExceptions);
+        copy.recurrenceParentId = recurrenceParentId;
+        copy.recurrenceId = recurrenceId;
+        return copy;
+    }
+
+    /**
+     * Get all occurrences of the given events that overlap a range of time.
+     * @param events the events, some of which may repeat
+     * @param start the start of the range in ms
+     * @param end the end of the range in ms (exclusive)
+     * @return all of the occurrences ordered by start time
+     */
+    public static List<Event> expandBetween(List<Event> events, long start, long end) {
+        List<Event> occurrences = new ArrayList<>();
+        boolean anyRepeating = false;
+        for (Event event : events) {
+            anyRepeating |= event.recurrence != null;
+            occurrences.addAll(event.occurrencesBetween(start, end));
+        }
+        if (anyRepeating) { Collections.sort(occurrences, (a, b) -> a.startTime.compareTo(b.startTime)); }
+        return occurrences;
+    }
+}
@@ -0,0 +1,75 @@
+package edu.moravian.csci299.mocalendar;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A collection of events that can be searched by time. Repeating events are stored once but are
+ * returned as each of their occurrences within the time being searched (see
+ * Event.occurrencesBetween()), always ordered by start time.
+ *
+ * Like the database queries, an event overlaps a range of time if it starts before the end of the
+ * range and ends at or after the start of it. Assignments (which have no end time) are treated as
+ * ending at their due date.
+ */
+public interface EventStore {
+    /**
+     * @param id the id of an event
+     * @return the event with that id, or null if there is none
+     */
+    Event get(UUID id);
+
+    /**
+     * Get the events that start within a range of time.
+     * @param start the start of the range in ms since the epoch
+     * @param end the end of the range in ms since the epoch (exclusive)
+     * @return the events (or occurrences) starting in the range ordered by start time
+     */
+    List<Event> getEventsStartingBetween(long start, long end);
+
+    /**
+     * Get the events that overlap a range of time. This includes any events that start, end, or
+     * are ongoing within the range.
+     * @param start the start of the range in ms since the epoch
+     * @param end the end of the range in ms since the epoch (exclusive)
+     * @return the events (or occurrences) overlapping the range ordered by start time
+     */
+    List<Event> getEventsOverlapping(long start, long end);
+
+    /**
+     * Get the events that overlap the day containing the given date/time.
+     * @param time any date/time within the day in ms since the epoch
+     * @return the events (or occurrences) overlapping the day ordered by start time
+     */
+    default List<Event> getEventsOnDay(long time) {
+        long day = DateUtils.getStartOfDay(time);
+        return getEventsOverlapping(day, DateUtils.addDays(day, 1));
+    }
+
+    /**
+     * Add an event, replacing any event with the same id. An event that is changed must be put
+     * again for the change to be seen by the queries.
+     * @param event the event to add
+     */
+    void put(Event event);
+
+    /**
+     * Add many events, replacing any events with the same ids.
+     * @param events the events to add
+     */
+    default void putAll(Collection<Event> events) {
+        for (Event event : events) { put(event); }
+    }
+
+    /**
+     * Remove the event with the given id if there is one.
+     * @param id the id of the event to remove
+     */
+    void remove(UUID id);
+
+    /**
+     * @return the number of events, counting a repeating event once
+     */
+    int size();
+}
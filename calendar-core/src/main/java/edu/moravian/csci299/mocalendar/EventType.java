@@ -0,0 +1,56 @@
+package edu.moravian.csci299.mocalendar;
+
+/**
+ * The types of events (and assignments). This is gives each type a name so that it can be displayed
+ * with the events for easy identification. The icon of each type is part of the app (see
+ * EventTypeIcons) since this has no access to its resources.
+ *
+ * Each type also has a small integer code which is how it is stored in the database. The codes must
+ * never change once used, but the types can be renamed or reordered freely.
+ *
+ * NOTE: If you want to, you can add additional types here. Each one requires a new unique code and
+ * a name, along with an icon in EventTypeIcons, so that it can be selected and displayed.
+ */
+public enum EventType {
+    GENERIC(0, "Event"),
+    ASSIGNMENT(1, "Assignment"),
+    CLASS(2, "Class"),
+    LAB(3, "Lab"),
+    EXAM(4, "Exam"),
+    ESSAY(5, "Essay"),
+    PROGRAMMING(6, "Programming Assignment"),
+    READING(7, "Reading Assignment"),
+    CLUB(8, "Club"),
+    OFFICE_HOURS(9, "Office Hours"),
+    ATHLETIC_PRACTICE(10, "Athletic Practice"),
+    MUSIC_PRACTICE(11, "Music Practice"),
+    COMPETITION(12, "Competition"),
+    PRESENTATION(13, "Presentation"),
+    HOLIDAY(14, "Holiday");
+
+    public final int code;
+    public final String simpleName;
+    EventType(int code, String name) {
+        this.code = code;
+        this.simpleName = name;
+    }
+
+    /** The types indexed by their codes */
+    private static final EventType[] BY_CODE;
+    static {
+        int maxCode = 0;
+        for (EventType type : values()) { maxCode = Math.max(maxCode, type.code); }
+        BY_CODE = new EventType[maxCode + 1];
+        for (EventType type : values()) { BY_CODE[type.code] = type; }
+    }
+
+    /**
+     * Get the type with the given code.
+     * @param code the code of the type
+     * @return the type with that code, or GENERIC if there is no type with that code
+     */
+    public static EventType fromCode(int code) {
+        EventType type = code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+        return type == null ? GENERIC : type;
+    }
+}
@@ -0,0 +1,80 @@
+package edu.moravian.csci299.mocalendar;
+
+import androidx.room.TypeConverter;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Converts a Date to/from a Long, a list of Dates to/from a String of
+ * comma-separated Longs, a UUID to/from 16 bytes, and an EventType to/from
+ * its Integer code.
+ */
+public class EventTypeConverter {
+
+    @TypeConverter
+    public Long fromDate(Date date) {
+        return date == null ? null : date.getTime();
+    }
+
+    @TypeConverter
+    public Date toDate(Long ms) {
+        return ms == null ? null : new Date(ms);
+    }
+
+    @TypeConverter
+    public String fromDates(List<Date> dates) {
+        if (dates == null) { return null; }
+        StringBuilder str = new StringBuilder();
+        for (Date date : dates) {
+            if (str.length() > 0) { str.append(','); }
+            str.append(date.getTime());
+        }
+        return str.toString();
+    }
+
+    @TypeConverter
+    public List<Date> toDates(String dates) {
+        if (dates == null) { return null; }
+        List<Date> list = new ArrayList<>();
+        for (String ms : dates.split(",")) {
+            if (!ms.isEmpty()) { list.add(new Date(Long.parseLong(ms))); }
+        }
+        return list;
+    }
+
+    @TypeConverter
+    public byte[] fromUUID(UUID uuid) {
+        if (uuid == null) { return null; }
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    @TypeConverter
+    public UUID toUUID(byte[] uuid) {
+        if (uuid == null) { return null; }
+        if (uuid.length != 16) {
+            // an id stored as text that has not been rewritten yet (see AppDatabase.MIGRATION_2_3)
+            return UUID.fromString(new String(uuid, StandardCharsets.UTF_8));
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(uuid);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    @TypeConverter
+    public Integer fromEventType(EventType eventType) {
+        return eventType == null ? null : eventType.code;
+    }
+
+    @TypeConverter
+    public EventType toEventType(Integer eventType) {
+        return eventType == null ? null : EventType.fromCode(eventType);
+    }
+
+}
@@ -0,0 +1,93 @@
+package edu.moravian.csci299.mocalendar;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the times that are busy or free within a range of time. Only the events within the range
+ * are pulled from the event store, through its range query, and since they come ordered by start
+ * time their times are merged into busy blocks in a single pass. The free slots are the gaps
+ * between the blocks, so a range is answered in O(n log n) for the n events within it (the cost of
+ * the store ordering them).
+ *
+ * Assignments (which have no end time) are due dates rather than time that is busy, so they are
+ * ignored.
+ */
+public class FreeBusyFinder {
+    /** A span of time, from its start (inclusive) to its end (exclusive) in ms since the epoch. */
+    public static class Slot {
+        public final long start, end;
+
+        Slot(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        /** @return the length of the slot in ms */
+        public long getLength() { return end - start; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) { return true; }
+            if (!(o instanceof Slot)) { return false; }
+            Slot slot = (Slot) o;
+            return start == slot.start && end == slot.end;
+        }
+
+        @Override
+        public int hashCode() { return Long.hashCode(start) * 31 + Long.hashCode(end); }
+    }
+
+    private final EventStore store;
+
+    /**
+     * @param store the events that make time busy
+     */
+    public FreeBusyFinder(EventStore store) { this.store = store; }
+
+    /**
+     * Get the busy blocks within a range: the times covered by at least one event, with events that
+     * overlap or touch merged together and everything clipped to the range.
+     * @param start the start of the range in ms since the epoch
+     * @param end the end of the range in ms since the epoch (exclusive)
+     * @return the busy blocks in order
+     */
+    public List<Slot> findBusy(long start, long end) {
+        List<Slot> busy = new ArrayList<>();
+        if (end <= start) { return busy; }
+        long blockStart = 0, blockEnd = Long.MIN_VALUE;
+        for (Event event : store.getEventsOverlapping(start, end)) {
+            if (event.endTime == null) { continue; }
+            long eventStart = Math.max(start, event.startTime.getTime());
+            long eventEnd = Math.min(end, event.endTime.getTime());
+            if (eventEnd <= eventStart) { continue; }
+            if (eventStart > blockEnd) {
+                if (blockEnd > blockStart) { busy.add(new Slot(blockStart, blockEnd)); }
+                blockStart = eventStart;
+                blockEnd = eventEnd;
+            } else if (eventEnd > blockEnd) {
+                blockEnd = eventEnd;
+            }
+        }
+        if (blockEnd > blockStart) { busy.add(new Slot(blockStart, blockEnd)); }
+        return busy;
+    }
+
+    /**
+     * Get the free slots within a range that are at least a given length.
+     * @param start the start of the range in ms since the epoch
+     * @param end the end of the range in ms since the epoch (exclusive)
+     * @param minLength the shortest slot to return in ms
+     * @return the free slots in order
+     */
+    public List<Slot> findFree(long start, long end, long minLength) {
+        List<Slot> free = new ArrayList<>();
+        long freeStart = start;
+        for (Slot block : findBusy(start, end)) {
+            if (block.start > freeStart && block.start - freeStart >= minLength) { free.add(new Slot(freeStart, block.start)); }
+            freeStart = block.end;
+        }
+        if (end > freeStart && end - freeStart >= minLength) { free.add(new Slot(freeStart, end)); }
+        return free;
+    }
+}
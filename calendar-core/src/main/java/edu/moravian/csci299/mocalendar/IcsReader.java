@@ -0,0 +1,372 @@
+package edu.moravian.csci299.mocalendar;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Reads the events from an iCalendar (.ics) file one at a time. The file is streamed a line at a
+ * time (joining folded lines back together), so only the event being read is ever held in memory
+ * no matter how large the file is.
+ *
+ * Each VEVENT becomes an Event. The id of the event comes from its UID, so reading the same event
+ * again always gives the same id and duplicates can be detected just by the id. Other components
+ * (such as time zones, to-dos, and alarms) and cancelled events are skipped. The type of each event
+ * is guessed from the words in its categories and summary.
+ *
+ * This class does not use any Android classes so that it can be used on a plain JVM.
+ */
+public class IcsReader implements Closeable {
+    /**
+     * An event read from the file along with what identified it in the file.
+     */
+    public static class IcsEvent {
+        /** The event, with its id taken from the UID of the event */
+        public final Event event;
+        /** The UID of the event in the file, or null if it had none */
+        public final String uid;
+        /**
+         * For an event that replaces a single occurrence of a repeating event, the start of the
+         * occurrence it replaces (the event itself has the id of the repeating event as its
+         * recurrenceParentId). Otherwise null.
+         */
+        public final Date recurrenceId;
+
+        IcsEvent(Event event, String uid, Date recurrenceId) {
+            this.event = event;
+            this.uid = uid;
+            this.recurrenceId = recurrenceId;
+        }
+    }
+
+    /**
+     * The words that identify each type of event, checked in order. A keyword matches the start of
+     * a word, or a whole word if it ends with a space.
+     */
+    private static final Object[][] TYPE_KEYWORDS = {
+            {EventType.HOLIDAY, "holiday", "vacation", "recess", "break ", "no class"},
+            {EventType.OFFICE_HOURS, "office hour"},
+            {EventType.EXAM, "exam", "midterm", "final", "quiz", "test "},
+            {EventType.LAB, "lab "},
+            {EventType.ESSAY, "essay", "paper"},
+            {EventType.PROGRAMMING, "program", "coding", "code "},
+            {EventType.READING, "reading", "read "},
+            {EventType.ASSIGNMENT, "assignment", "homework", "hw", "due ", "deadline"},
+            {EventType.PRESENTATION, "presentation", "talk", "seminar", "colloquium"},
+            {EventType.MUSIC_PRACTICE, "rehearsal", "music", "choir", "band ", "orchestra", "ensemble"},
+            {EventType.ATHLETIC_PRACTICE, "practice", "training", "workout"},
+            {EventType.CLUB, "club", "meeting"},
+            {EventType.COMPETITION, "competition", "tournament", "game", "match", "meet "},
+            {EventType.CLASS, "class", "lecture", "course", "recitation"},
+    };
+
+    // the length of a minute and a day in ms
+    private static final long MINUTE = 60 * 1000L, DAY = 24 * 60 * MINUTE;
+
+    private final BufferedReader reader;
+    private final ZoneId defaultZone;
+    // the next physical line, read ahead to know if it continues the current one
+    private String nextLine;
+
+    /**
+     * @param reader the text of the file
+     * @param defaultZone the time zone for date/times that do not give one
+     */
+    public IcsReader(Reader reader, ZoneId defaultZone) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        this.defaultZone = defaultZone;
+    }
+
+    /**
+     * Read the next event from the file.
+     * @return the next event, or null if there are no more
+     * @throws IOException if the file cannot be read
+     */
+    public IcsEvent next() throws IOException {
+        String line;
+        while ((line = readLine()) != null) {
+            if (line.equalsIgnoreCase("BEGIN:VEVENT")) {
+                IcsEvent event = readEvent();
+                if (event != null) { return event; }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException { reader.close(); }
+
+    /**
+     * Read the properties of an event up to its END:VEVENT.
+     * @return the event, or null if it was cancelled or is missing its start
+     */
+    private IcsEvent readEvent() throws IOException {
+        String uid = null, summary = null, description = null, categories = "", rule = null, status = null;
+        Property start = null, end = null, recurrenceId = null;
+        String duration = null;
+        List<Property> exceptions = new ArrayList<>();
+        int nested = 0;  // the depth of components within the event, such as alarms
+        String line;
+        while ((line = readLine()) != null) {
+            Property property = Property.parse(line);
+            if (property == null) { continue; }
+            if (property.name.equals("BEGIN")) { nested++; continue; }
+            if (property.name.equals("END")) {
+                if (nested-- > 0) { continue; }
+                break;
+            }
+            if (nested > 0) { continue; }
+            switch (property.name) {
+                case "UID": uid = property.value; break;
+                case "SUMMARY": summary = unescape(property.value); break;
+                case "DESCRIPTION": description = unescape(property.value); break;
+                case "CATEGORIES": categories += "," + unescape(property.value); break;
+                case "STATUS": status = property.value; break;
+                case "DTSTART": start = property; break;
+                case "DTEND": end = property; break;
+                case "DURATION": duration = property.value; break;
+                case "RRULE": rule = property.value; break;
+                case "EXDATE": exceptions.add(property); break;
+                case "RECURRENCE-ID": recurrenceId = property; break;
+            }
+        }
+        if (start == null || "CANCELLED".equalsIgnoreCase(status)) { return null; }
+
+        Event event = new Event();
+        event.id = uid == null ? UUID.randomUUID() : idForUid(uid);
+        if (summary != null && !summary.trim().isEmpty()) { event.name = summary.trim(); }
+        if (description != null) { event.description = description; }
+        boolean allDay = start.isDate();
+        long startTime = start.toEpochMillis(defaultZone);
+        event.startTime = new Date(startTime);
+        if (end != null) {
+            event.endTime = new Date(end.toEpochMillis(defaultZone));
+        } else if (duration != null) {
+            event.endTime = new Date(startTime + parseDuration(duration));
+        } else if (allDay) {
+            event.endTime = new Date(DateUtils.addDays(startTime, 1));
+        }
+        if (allDay && event.endTime != null) {
+            // the end of an all-day event is the start of the next day, which would put the event
+            // on that day as well
+            event.endTime = new Date(Math.max(startTime, event.endTime.getTime() - MINUTE));
+        }
+        if (event.endTime != null && event.endTime.getTime() < startTime) { event.endTime = null; }
+        event.type = guessType(categories, event.name, event.endTime == null);
+        if (rule != null && recurrenceId == null) {
+            event.recurrence = rule;
+            for (Property exception : exceptions) {
+                for (String value : exception.value.split(",")) {
+                    event.recurrenceExceptions.add(new Date(exception.withValue(value.trim()).toEpochMillis(defaultZone)));
+                }
+            }
+            event.updateRecurrenceEnd();
+        }
+        Date replaced = null;
+        if (recurrenceId != null && uid != null) {
+            replaced = new Date(recurrenceId.toEpochMillis(defaultZone));
+            event.recurrenceParentId = event.id;
+            event.recurrenceId = replaced;
+            event.id = Event.overrideId(event.recurrenceParentId, replaced.getTime());
+        }
+        return new IcsEvent(event, uid, replaced);
+    }
+
+    /**
+     * Read the next line, joining any folded lines (those starting with a space or tab) onto it.
+     * @return the unfolded line, or null at the end of the file
+     */
+    private String readLine() throws IOException {
+        String line = nextLine != null ? nextLine : reader.readLine();
+        if (line == null) { return null; }
+        nextLine = reader.readLine();
+        if (nextLine == null || nextLine.isEmpty() || (nextLine.charAt(0) != ' ' && nextLine.charAt(0) != '\t')) {
+            return line;
+        }
+        StringBuilder unfolded = new StringBuilder(line);
+        while (nextLine != null && !nextLine.isEmpty() && (nextLine.charAt(0) == ' ' || nextLine.charAt(0) == '\t')) {
+            unfolded.append(nextLine, 1, nextLine.length());
+            nextLine = reader.readLine();
+        }
+        return unfolded.toString();
+    }
+
+    /**
+     * Get the id for an event with the given UID. A UID that is (or starts with) a UUID, like the
+     * ones written for this app's own events, is used as is. Any other UID is hashed into a UUID.
+     * @param uid the UID of the event
+     * @return the id for the event
+     */
+    public static UUID idForUid(String uid) {
+        String prefix = uid.indexOf('@') == 36 ? uid.substring(0, 36) : uid;
+        if (prefix.length() == 36) {
+            try {
+                return UUID.fromString(prefix);
+            } catch (IllegalArgumentException ignored) { }
+        }
+        return UUID.nameUUIDFromBytes(uid.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Guess the type of an event from its categories and name.
+     * @param categories the categories of the event, separated by commas or spaces
+     * @param name the name of the event
+     * @param noEnd true if the event has no end time
+     * @return the type named by a category, or else the first type with a keyword in the categories,
+     *         or else in the name, or else GENERIC for an event and ASSIGNMENT for something that
+     *         only has a due date
+     */
+    static EventType guessType(String categories, String name, boolean noEnd) {
+        // a category that is the name of a type, as written by IcsWriter, is that type
+        for (String category : categories.split(",")) {
+            for (EventType type : EventType.values()) {
+                if (type.simpleName.equalsIgnoreCase(category.trim())) { return type; }
+            }
+        }
+        for (String text : new String[]{categories, name}) {
+            // pad the words with spaces so keywords only match at the start of a word
+            String words = " " + text.toLowerCase(Locale.US).replaceAll("[^\\p{L}\\p{N}]+", " ") + " ";
+            for (Object[] keywords : TYPE_KEYWORDS) {
+                for (int i = 1; i < keywords.length; i++) {
+                    if (words.contains(" " + keywords[i])) { return (EventType) keywords[0]; }
+                }
+            }
+        }
+        return noEnd ? EventType.ASSIGNMENT : EventType.GENERIC;
+    }
+
+    /**
+     * Parse a duration like "PT1H30M" or "P1W".
+     * @return the duration in ms
+     */
+    static long parseDuration(String value) {
+        long total = 0, number = 0, sign = 1;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '-') { sign = -1; }
+            else if (Character.isDigit(c)) { number = number * 10 + (c - '0'); }
+            else {
+                switch (c) {
+                    case 'W': total += number * 7 * DAY; break;
+                    case 'D': total += number * DAY; break;
+                    case 'H': total += number * 60 * MINUTE; break;
+                    case 'M': total += number * MINUTE; break;
+                    case 'S': total += number * 1000; break;
+                }
+                number = 0;
+            }
+        }
+        return sign * total;
+    }
+
+    /**
+     * Undo the escaping of a text value.
+     */
+    static String unescape(String value) {
+        if (value.indexOf('\\') < 0) { return value; }
+        StringBuilder text = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                c = value.charAt(++i);
+                text.append(c == 'n' || c == 'N' ? '\n' : c);
+            } else {
+                text.append(c);
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * A single property of a component, like "DTSTART;TZID=America/New_York:20210401T150000".
+     */
+    private static class Property {
+        final String name, value;
+        final String valueType, zone;  // the VALUE and TZID parameters, or null if not given
+
+        Property(String name, String value, String valueType, String zone) {
+            this.name = name;
+            this.value = value;
+            this.valueType = valueType;
+            this.zone = zone;
+        }
+
+        /**
+         * Parse a line into a property.
+         * @return the property, or null if the line is not one
+         */
+        static Property parse(String line) {
+            // the value starts after the first colon that is not within a quoted parameter
+            int colon = -1;
+            boolean quoted = false;
+            for (int i = 0; i < line.length() && colon < 0; i++) {
+                char c = line.charAt(i);
+                if (c == '"') { quoted = !quoted; }
+                else if (c == ':' && !quoted) { colon = i; }
+            }
+            if (colon < 0) { return null; }
+            String[] parts = line.substring(0, colon).split(";");
+            String valueType = null, zone = null;
+            for (int i = 1; i < parts.length; i++) {
+                int equals = parts[i].indexOf('=');
+                if (equals < 0) { continue; }
+                String param = parts[i].substring(0, equals).toUpperCase(Locale.US);
+                String value = parts[i].substring(equals + 1).replace("\"", "");
+                if (param.equals("VALUE")) { valueType = value.toUpperCase(Locale.US); }
+                else if (param.equals("TZID")) { zone = value; }
+            }
+            return new Property(parts[0].trim().toUpperCase(Locale.US), line.substring(colon + 1), valueType, zone);
+        }
+
+        /** @return the same property with a different value */
+        Property withValue(String value) { return new Property(name, value, valueType, zone); }
+
+        /** @return true if the value is a date without a time */
+        boolean isDate() { return "DATE".equals(valueType) || value.trim().length() == 8; }
+
+        /**
+         * Convert a date like "20210401" (midnight in the default zone) or a date/time like
+         * "20210401T150000Z" (UTC), "20210401T150000" (in the TZID zone or else the default zone).
+         * @param defaultZone the zone for values that do not give one
+         * @return the date/time in ms since the epoch
+         */
+        long toEpochMillis(ZoneId defaultZone) {
+            String text = value.trim();
+            LocalDate date = LocalDate.of(Integer.parseInt(text.substring(0, 4)),
+                    Integer.parseInt(text.substring(4, 6)), Integer.parseInt(text.substring(6, 8)));
+            if (isDate()) { return date.atStartOfDay(defaultZone).toInstant().toEpochMilli(); }
+            LocalDateTime dateTime = date.atTime(Integer.parseInt(text.substring(9, 11)),
+                    Integer.parseInt(text.substring(11, 13)), Integer.parseInt(text.substring(13, 15)));
+            ZoneId zoneId = text.endsWith("Z") ? ZoneOffset.UTC : zone == null ? defaultZone : toZoneId(zone, defaultZone);
+            return dateTime.atZone(zoneId).toInstant().toEpochMilli();
+        }
+
+        /**
+         * Find the time zone for a TZID. Some calendars prefix the zone name with a path, so the
+         * end of the TZID is tried if the whole of it is not a known zone.
+         */
+        private static ZoneId toZoneId(String tzid, ZoneId defaultZone) {
+            String name = tzid;
+            while (true) {
+                try {
+                    return ZoneId.of(name);
+                } catch (RuntimeException ex) {
+                    int slash = name.indexOf('/', 1);
+                    if (slash < 0) { return defaultZone; }
+                    name = name.substring(slash + 1);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package edu.moravian.csci299.mocalendar;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+/**
+ * Writes events to an iCalendar (.ics) file one at a time, so any number of events can be written
+ * without holding them in memory. The file is written in the format IcsReader reads: each event
+ * becomes a VEVENT with its id as its UID and the name of its type as its category, so reading the
+ * file back gives the same events. An event that replaces an occurrence of a repeating event is
+ * written with the UID of the repeating event and the start of the occurrence as its RECURRENCE-ID.
+ *
+ * Times are written in UTC, except for repeating events which are written in the time zone they
+ * repeat in so that their occurrences stay at the same time of day across changes of the offset.
+ * Text is escaped and long lines are folded at 75 octets.
+ *
+ * This class does not use any Android classes so that it can be used on a plain JVM.
+ */
+public class IcsWriter implements Closeable {
+    // the longest a line can be in octets (of UTF-8) before it must be folded
+    private static final int MAX_LINE_OCTETS = 75;
+    // the suffix added to event ids to make them globally unique UIDs
+    private static final String UID_DOMAIN = "@mocalendar";
+
+    private static final DateTimeFormatter UTC_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private final Writer writer;
+    private final ZoneId zone;
+    private final DateTimeFormatter localFormat;
+    private final String stamp;
+
+    /**
+     * Start writing a calendar.
+     * @param writer where to write the file
+     * @param zone the time zone repeating events repeat in
+     * @throws IOException if the file cannot be written
+     */
+    public IcsWriter(Writer writer, ZoneId zone) throws IOException {
+        this.writer = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer);
+        this.zone = zone;
+        this.localFormat = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss").withZone(zone);
+        this.stamp = UTC_FORMAT.format(Instant.now());
+        writeLine("BEGIN:VCALENDAR");
+        writeLine("VERSION:2.0");
+        writeLine("PRODID:-//Moravian University//MoCalendar//EN");
+        writeLine("CALSCALE:GREGORIAN");
+    }
+
+    /**
+     * Write an event.
+     * @param event the event to write
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Event event) throws IOException {
+        boolean repeating = event.recurrence != null;
+        boolean override = event.recurrenceParentId != null && event.recurrenceId != null;
+        writeLine("BEGIN:VEVENT");
+        writeLine("UID:" + (override ? event.recurrenceParentId : event.id) + UID_DOMAIN);
+        writeLine("DTSTAMP:" + stamp);
+        if (override) { writeLine(timeProperty("RECURRENCE-ID", event.recurrenceId, false)); }
+        writeLine(timeProperty("DTSTART", event.startTime, repeating));
+        if (event.endTime != null) { writeLine(timeProperty("DTEND", event.endTime, repeating)); }
+        writeLine("SUMMARY:" + escape(event.name));
+        if (!event.description.isEmpty()) { writeLine("DESCRIPTION:" + escape(event.description)); }
+        writeLine("CATEGORIES:" + escape(event.type.simpleName));
+        if (repeating) {
+            writeLine("RRULE:" + event.recurrence);
+            if (!event.recurrenceExceptions.isEmpty()) {
+                StringBuilder exceptions = new StringBuilder("EXDATE;TZID=").append(zone.getId()).append(':');
+                for (int i = 0; i < event.recurrenceExceptions.size(); i++) {
+                    if (i > 0) { exceptions.append(','); }
+                    exceptions.append(localFormat.format(event.recurrenceExceptions.get(i).toInstant()));
+                }
+                writeLine(exceptions.toString());
+            }
+        }
+        writeLine("END:VEVENT");
+    }
+
+    /**
+     * Finish the calendar and close the file.
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            writeLine("END:VCALENDAR");
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * @return a date/time property, in the time zone if local is true or else in UTC
+     */
+    private String timeProperty(String name, Date time, boolean local) {
+        return local ? name + ";TZID=" + zone.getId() + ":" + localFormat.format(time.toInstant())
+                : name + ":" + UTC_FORMAT.format(time.toInstant());
+    }
+
+    /**
+     * Write a line, folding it onto more lines (each starting with a space) if it is too long. Lines
+     * are only folded between characters, never within one.
+     */
+    private void writeLine(String line) throws IOException {
+        int octets = 0;
+        for (int i = 0; i < line.length(); ) {
+            int codePoint = line.codePointAt(i), chars = Character.charCount(codePoint);
+            int length = codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+            if (octets + length > MAX_LINE_OCTETS) {
+                writer.write("\r\n ");
+                octets = 1;
+            }
+            writer.write(line, i, chars);
+            octets += length;
+            i += chars;
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * Escape a text value.
+     */
+    static String escape(String text) {
+        StringBuilder escaped = new StringBuilder(text.length() + 8);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\': escaped.append("\\\\"); break;
+                case ';': escaped.append("\\;"); break;
+                case ',': escaped.append("\\,"); break;
+                case '\n': escaped.append("\\n"); break;
+                case '\r': break;
+                default: escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
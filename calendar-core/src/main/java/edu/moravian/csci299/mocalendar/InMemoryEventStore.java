@@ -0,0 +1,370 @@
+package edu.moravian.csci299.mocalendar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.UUID;
+
+/**
+ * An event store that keeps all of its events in memory.
+ *
+ * Events are kept in groups by how long they last, with each group sorted by start time along with
+ * a primitive array of the start times. An event in a group can only overlap a range if it starts
+ * within the longest duration of the group before the range, so overlap queries binary search each
+ * group for that bound and only look at the events between it and the end of the range. Since the
+ * durations within a group differ by at most a factor of four, a single long event only widens the
+ * search of its own group instead of every query. Adding or removing an event shifts the arrays of
+ * its group, which is linear but with a very small constant.
+ *
+ * Repeating events are kept in a separate set of groups by the span of time from their start to the
+ * end of their last occurrence (unending ones all being in the last group), along with their parsed
+ * rules and exceptions so that they are only parsed when they are stored.
+ *
+ * All of the methods are thread-safe.
+ */
+public class InMemoryEventStore implements EventStore {
+    private static final int INITIAL_CAPACITY = 16;
+
+    // the entries of all events by their ids
+    private final Map<UUID, Entry> byId = new HashMap<>();
+
+    // the entries of the events that do not repeat and of those that do
+    private final DurationIndex single = new DurationIndex();
+    private final DurationIndex repeating = new DurationIndex();
+
+    // the time zone the rules of the repeating events were parsed in
+    private TimeZone ruleZone = TimeZone.getDefault();
+
+    // the order each entry was stored in, to keep events with the same start in that order
+    private long nextOrder;
+
+    /**
+     * An event along with the times it was stored with, which stay the same even if the event is
+     * changed without being put again. A repeating event ends at the end of its last occurrence.
+     */
+    private static class Entry {
+        final Event event;
+        final long start, end, order;
+        // the parsed rule and exceptions of a repeating event
+        Recurrence rule;
+        Set<Long> exceptions;
+
+        Entry(Event event, long start, long end, long order) {
+            this.event = event;
+            this.start = start;
+            this.end = end;
+            this.order = order;
+        }
+    }
+
+    /** @return how long an entry lasts, which is Long.MAX_VALUE for an unending repeating event */
+    private static long durationOf(Entry entry) {
+        long duration = entry.end - entry.start;
+        if (duration < 0) { return entry.end >= entry.start ? Long.MAX_VALUE : 0; }  // overflowed or ends early
+        return duration;
+    }
+
+    /** Orders entries by start time and then by the order they were stored in */
+    private static final Comparator<Entry> BY_START = (a, b) ->
+            a.start != b.start ? Long.compare(a.start, b.start) : Long.compare(a.order, b.order);
+
+    @Override
+    public synchronized Event get(UUID id) {
+        Entry entry = byId.get(id);
+        return entry == null ? null : entry.event;
+    }
+
+    @Override
+    public synchronized List<Event> getEventsStartingBetween(long start, long end) {
+        List<Entry> found = new ArrayList<>();
+        single.findStartingBetween(start, end, found);
+        List<Event> occurrences = new ArrayList<>();
+        for (Event occurrence : expandRepeating(start, end)) {
+            if (occurrence.startTime.getTime() >= start) { occurrences.add(occurrence); }
+        }
+        return merge(eventsOf(found), occurrences);
+    }
+
+    @Override
+    public synchronized List<Event> getEventsOverlapping(long start, long end) {
+        List<Entry> found = new ArrayList<>();
+        single.findOverlapping(start, end, found);
+        return merge(eventsOf(found), expandRepeating(start, end));
+    }
+
+    @Override
+    public synchronized void put(Event event) {
+        remove(event.id);
+        Entry entry = newEntry(event);
+        byId.put(event.id, entry);
+        indexOf(entry).add(entry);
+    }
+
+    /**
+     * Add many events at once. The new events are sorted and merged with the stored ones in a
+     * single pass over each group rather than shifting the arrays for each of them.
+     */
+    @Override
+    public synchronized void putAll(Collection<Event> newEvents) {
+        // a later event with the same id replaces an earlier one
+        Map<UUID, Event> latest = new LinkedHashMap<>();
+        for (Event event : newEvents) { latest.put(event.id, event); }
+        Set<Entry> replaced = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Entry> newSingle = new ArrayList<>(latest.size()), newRepeating = new ArrayList<>();
+        for (Event event : latest.values()) {
+            Entry entry = newEntry(event);
+            Entry old = byId.put(event.id, entry);
+            if (old != null) { replaced.add(old); }
+            (entry.rule == null ? newSingle : newRepeating).add(entry);
+        }
+        single.replace(replaced, newSingle);
+        repeating.replace(replaced, newRepeating);
+    }
+
+    @Override
+    public synchronized void remove(UUID id) {
+        Entry entry = byId.remove(id);
+        if (entry != null) { indexOf(entry).remove(entry); }
+    }
+
+    @Override
+    public synchronized int size() { return byId.size(); }
+
+    /**
+     * Create the entry for storing an event, parsing its rule if it repeats.
+     */
+    private Entry newEntry(Event event) {
+        long start = event.startTime.getTime();
+        Recurrence rule = Recurrence.parseOrNull(event.recurrence, ruleZone);
+        if (rule == null) {
+            long end = event.endTime == null ? start : event.endTime.getTime();
+            return new Entry(event, start, end, nextOrder++);
+        }
+        Long last = rule.lastOccurrence(start, ruleZone);
+        long end = last == null ? Long.MAX_VALUE : last + event.getDuration();
+        Entry entry = new Entry(event, start, end, nextOrder++);
+        entry.rule = rule;
+        entry.exceptions = event.getExceptionTimes();
+        return entry;
+    }
+
+    /** @return the index an entry is stored in */
+    private DurationIndex indexOf(Entry entry) { return entry.rule == null ? single : repeating; }
+
+    /**
+     * Get the occurrences of the repeating events that overlap a range of time.
+     * @return the occurrences ordered by start time
+     */
+    private List<Event> expandRepeating(long start, long end) {
+        if (repeating.size == 0) { return Collections.emptyList(); }
+        TimeZone zone = TimeZone.getDefault();
+        if (!zone.hasSameRules(ruleZone)) { reparseRules(zone); }
+        List<Entry> found = new ArrayList<>();
+        repeating.findOverlapping(start, end, found);
+        Collections.sort(found, BY_START);
+        List<Event> occurrences = new ArrayList<>();
+        for (Entry entry : found) {
+            occurrences.addAll(entry.event.occurrencesBetween(entry.rule, entry.exceptions, start, end));
+        }
+        Collections.sort(occurrences, (a, b) -> a.startTime.compareTo(b.startTime));
+        return occurrences;
+    }
+
+    /**
+     * Parse the rules of all repeating events again after the default time zone changed, since the
+     * end of a rule can depend on the time zone.
+     */
+    private void reparseRules(TimeZone zone) {
+        ruleZone = zone;
+        List<Event> events = new ArrayList<>();
+        for (Entry entry : byId.values()) {
+            if (entry.rule != null) { events.add(entry.event); }
+        }
+        putAll(events);
+    }
+
+    /** @return the events of some entries, after sorting the entries by start time */
+    private static List<Event> eventsOf(List<Entry> entries) {
+        Collections.sort(entries, BY_START);
+        List<Event> events = new ArrayList<>(entries.size());
+        for (Entry entry : entries) { events.add(entry.event); }
+        return events;
+    }
+
+    /**
+     * Merge two lists of events that are each ordered by start time.
+     */
+    private static List<Event> merge(List<Event> a, List<Event> b) {
+        if (b.isEmpty()) { return a; }
+        if (a.isEmpty()) { return b; }
+        List<Event> merged = new ArrayList<>(a.size() + b.size());
+        int i = 0, j = 0;
+        while (i < a.size() && j < b.size()) {
+            merged.add(a.get(i).startTime.compareTo(b.get(j).startTime) <= 0 ? a.get(i++) : b.get(j++));
+        }
+        merged.addAll(a.subList(i, a.size()));
+        merged.addAll(b.subList(j, b.size()));
+        return merged;
+    }
+
+    /**
+     * Entries in groups by how long they last, where the durations within each group are within
+     * a factor of four of each other.
+     */
+    private static class DurationIndex {
+        private static final int GROUPS = 33;
+        private final Group[] groups = new Group[GROUPS];
+        int size;
+
+        /** @return the group for entries lasting the given (non-negative) length of time */
+        private static int groupOf(long duration) { return (64 - Long.numberOfLeadingZeros(duration)) >>> 1; }
+
+        /** @return the group of an entry, created if needed */
+        private Group groupOf(Entry entry) {
+            int index = groupOf(durationOf(entry));
+            if (groups[index] == null) { groups[index] = new Group(); }
+            return groups[index];
+        }
+
+        void add(Entry entry) {
+            groupOf(entry).add(entry);
+            size++;
+        }
+
+        void remove(Entry entry) {
+            groupOf(entry).remove(entry);
+            size--;
+        }
+
+        /**
+         * Remove some entries and add others, rebuilding each group that changes just once.
+         * @param removed entries to remove, which may include ones stored in another index
+         * @param added entries to add
+         */
+        void replace(Set<Entry> removed, List<Entry> added) {
+            if (removed.isEmpty() && added.isEmpty()) { return; }
+            List<List<Entry>> addedByGroup = new ArrayList<>(Collections.nCopies(GROUPS, null));
+            for (Entry entry : added) {
+                int index = groupOf(durationOf(entry));
+                if (addedByGroup.get(index) == null) { addedByGroup.set(index, new ArrayList<>()); }
+                addedByGroup.get(index).add(entry);
+            }
+            size = 0;
+            for (int i = 0; i < GROUPS; i++) {
+                List<Entry> groupAdded = addedByGroup.get(i);
+                if (groups[i] == null && groupAdded == null) { continue; }
+                if (groups[i] == null) { groups[i] = new Group(); }
+                groups[i].replace(removed, groupAdded == null ? Collections.emptyList() : groupAdded);
+                size += groups[i].size;
+            }
+        }
+
+        /** Add the entries that overlap a range of time to a list, in no particular order */
+        void findOverlapping(long start, long end, List<Entry> found) {
+            for (Group group : groups) {
+                if (group == null || group.size == 0) { continue; }
+                long from = start - group.maxDuration;
+                if (from > start) { from = Long.MIN_VALUE; }  // overflowed
+                for (int i = group.firstAtOrAfter(from), to = group.firstAtOrAfter(end); i < to; i++) {
+                    if (group.entries[i].end >= start) { found.add(group.entries[i]); }
+                }
+            }
+        }
+
+        /** Add the entries that start within a range of time to a list, in no particular order */
+        void findStartingBetween(long start, long end, List<Entry> found) {
+            for (Group group : groups) {
+                if (group == null || group.size == 0) { continue; }
+                for (int i = group.firstAtOrAfter(start), to = group.firstAtOrAfter(end); i < to; i++) {
+                    found.add(group.entries[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Entries sorted by start time (and then by the order they were stored in) along with their
+     * start times and the longest duration of any of them.
+     */
+    private static class Group {
+        Entry[] entries = new Entry[INITIAL_CAPACITY];
+        long[] starts = new long[INITIAL_CAPACITY];
+        int size;
+        long maxDuration;
+
+        void add(Entry entry) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+                starts = Arrays.copyOf(starts, size * 2);
+            }
+            // entries are stored in increasing order, so a new one goes after those with the same start
+            int index = firstAtOrAfter(entry.start + 1);
+            if (entry.start == Long.MAX_VALUE) { index = size; }
+            System.arraycopy(entries, index, entries, index + 1, size - index);
+            System.arraycopy(starts, index, starts, index + 1, size - index);
+            entries[index] = entry;
+            starts[index] = entry.start;
+            size++;
+            maxDuration = Math.max(maxDuration, durationOf(entry));
+        }
+
+        void remove(Entry entry) {
+            int index = firstAtOrAfter(entry.start);
+            while (entries[index] != entry) { index++; }
+            System.arraycopy(entries, index + 1, entries, index, size - index - 1);
+            System.arraycopy(starts, index + 1, starts, index, size - index - 1);
+            entries[--size] = null;
+            // the longest duration is only an upper bound, which is exact again once the group is empty
+            if (size == 0) { maxDuration = 0; }
+        }
+
+        /**
+         * Remove some entries and merge in others in a single pass.
+         * @param removed entries to remove, which may not be in this group
+         * @param added entries to add
+         */
+        void replace(Set<Entry> removed, List<Entry> added) {
+            Collections.sort(added, BY_START);
+            int capacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(size + added.size()) * 2);
+            Entry[] merged = new Entry[capacity];
+            long[] mergedStarts = new long[capacity];
+            int i = 0, j = 0, k = 0;
+            maxDuration = 0;
+            while (i < size || j < added.size()) {
+                Entry entry;
+                if (j == added.size() || (i < size && BY_START.compare(entries[i], added.get(j)) <= 0)) {
+                    entry = entries[i++];
+                    if (removed.contains(entry)) { continue; }
+                } else {
+                    entry = added.get(j++);
+                }
+                merged[k] = entry;
+                mergedStarts[k++] = entry.start;
+                maxDuration = Math.max(maxDuration, durationOf(entry));
+            }
+            entries = merged;
+            starts = mergedStarts;
+            size = k;
+        }
+
+        /** @return the index of the first entry starting at or after the given time */
+        int firstAtOrAfter(long time) {
+            int low = 0, high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (starts[mid] < time) { low = mid + 1; }
+                else { high = mid; }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package edu.moravian.csci299.mocalendar;
+
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * A rule for how an event repeats, written in the style of an iCalendar RRULE such as
+ * "FREQ=WEEKLY;BYDAY=MO,WE,FR;UNTIL=20211210T000000Z". The supported parts are FREQ (DAILY,
+ * WEEKLY, MONTHLY, or YEARLY), INTERVAL, COUNT, UNTIL, and BYDAY (for weekly rules only). A monthly
+ * or yearly rule skips months or years that do not have the day of the first occurrence.
+ *
+ * Occurrences are never stored, they are generated only for the window of time being looked at.
+ * Occurrences are grouped into periods (a day, week, month, or year) and the first period that
+ * could reach the window is computed directly, so finding the occurrences in a window takes the
+ * same time no matter how long the event has been repeating for.
+ *
+ * This class does not use any Android classes so that it can be used on a plain JVM.
+ */
+public class Recurrence {
+    /** How often a rule repeats along with the unit for that amount of time */
+    public enum Frequency {
+        DAILY(ChronoUnit.DAYS), WEEKLY(ChronoUnit.WEEKS), MONTHLY(ChronoUnit.MONTHS), YEARLY(ChronoUnit.YEARS);
+
+        final ChronoUnit unit;
+        Frequency(ChronoUnit unit) { this.unit = unit; }
+    }
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final long WEEK = 7 * DAY;
+
+    /** The names of the days of the week, indexed by DayOfWeek.getValue() - 1 */
+    private static final String[] DAY_NAMES = {"MO", "TU", "WE", "TH", "FR", "SA", "SU"};
+
+    private static final DateTimeFormatter UTC_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    public final Frequency frequency;
+    public final int interval;
+    /** The total number of occurrences, or -1 if not limited by a count */
+    public final int count;
+    /** The latest time (in ms) an occurrence can start, or Long.MAX_VALUE if not limited */
+    public final long until;
+    /** The days of the week for a weekly rule, from Monday on */
+    private final DayOfWeek[] byDay;
+
+    private Recurrence(Frequency frequency, int interval, int count, long until, DayOfWeek[] byDay) {
+        this.frequency = frequency;
+        this.interval = interval;
+        this.count = count;
+        this.until = until;
+        this.byDay = byDay;
+    }
+
+    /**
+     * Parse a rule like "FREQ=DAILY;INTERVAL=2;COUNT=10".
+     * @param rule the rule
+     * @param zone the time zone to use for an UNTIL that is not in UTC
+     * @return the parsed rule
+     * @throws IllegalArgumentException if the rule is not valid or not supported
+     */
+    public static Recurrence parse(String rule, TimeZone zone) {
+        Frequency frequency = null;
+        int interval = 1, count = -1;
+        long until = Long.MAX_VALUE;
+        boolean[] days = new boolean[7];
+        boolean anyDays = false;
+        for (String part : rule.trim().split(";")) {
+            if (part.isEmpty()) { continue; }
+            int equals = part.indexOf('=');
+            if (equals < 0) { throw new IllegalArgumentException("Invalid recurrence rule part: " + part); }
+            String name = part.substring(0, equals).trim().toUpperCase(Locale.US), value = part.substring(equals + 1).trim();
+            try {
+                switch (name) {
+                    case "FREQ": frequency = Frequency.valueOf(value.toUpperCase(Locale.US)); break;
+                    case "INTERVAL": interval = Integer.parseInt(value); break;
+                    case "COUNT": count = Integer.parseInt(value); break;
+                    case "UNTIL": until = parseUntil(value, zone); break;
+                    case "BYDAY":
+                        for (String day : value.split(",")) {
+                            days[dayOfWeek(day.trim().toUpperCase(Locale.US)).getValue() - 1] = true;
+                            anyDays = true;
+                        }
+                        break;
+                    case "WKST": break;  // weeks always start on Monday
+                    default: throw new IllegalArgumentException("Unsupported recurrence rule part: " + name);
+                }
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid recurrence rule part: " + part, ex);
+            }
+        }
+        if (frequency == null) { throw new IllegalArgumentException("Recurrence rule has no FREQ: " + rule); }
+        if (interval < 1 || count == 0 || count < -1) { throw new IllegalArgumentException("Invalid recurrence rule: " + rule); }
+        if (anyDays && frequency != Frequency.WEEKLY) { throw new IllegalArgumentException("BYDAY is only supported for weekly rules: " + rule); }
+        List<DayOfWeek> ordered = new ArrayList<>();
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (days[day.getValue() - 1]) { ordered.add(day); }
+        }
+        return new Recurrence(frequency, interval, count, until, ordered.toArray(new DayOfWeek[0]));
+    }
+
+    /**
+     * Parse a rule, returning null instead of throwing an exception if it is not valid.
+     */
+    public static Recurrence parseOrNull(String rule, TimeZone zone) {
+        if (rule == null) { return null; }
+        try {
+            return parse(rule, zone);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Parse an UNTIL value, either a date like "20211210" (the end of that day in the given zone),
+     * a date-time in UTC like "20211210T150000Z", or a date-time in the given zone.
+     * @throws IllegalArgumentException if the value is not in one of those forms or is not a real
+     *         date and time
+     */
+    private static long parseUntil(String value, TimeZone zone) {
+        if (!value.matches("\\d{8}(T\\d{6}Z?)?")) { throw new IllegalArgumentException("Invalid UNTIL: " + value); }
+        ZoneId zoneId = value.endsWith("Z") ? ZoneOffset.UTC : zone.toZoneId();
+        try {
+            LocalDate date = LocalDate.of(Integer.parseInt(value.substring(0, 4)), Integer.parseInt(value.substring(4, 6)),
+                    Integer.parseInt(value.substring(6, 8)));
+            if (value.length() > 8) {
+                return date.atTime(Integer.parseInt(value.substring(9, 11)), Integer.parseInt(value.substring(11, 13)),
+                        Integer.parseInt(value.substring(13, 15))).atZone(zoneId).toInstant().toEpochMilli();
+            }
+            return date.plusDays(1).atStartOfDay(zoneId).toInstant().toEpochMilli() - 1;
+        } catch (DateTimeException ex) {
+            throw new IllegalArgumentException("Invalid UNTIL: " + value, ex);
+        }
+    }
+
+    /** @return the day of the week for a two letter day name like "MO" */
+    private static DayOfWeek dayOfWeek(String name) {
+        for (int i = 0; i < DAY_NAMES.length; i++) {
+            if (DAY_NAMES[i].equals(name)) { return DayOfWeek.of(i + 1); }
+        }
+        throw new IllegalArgumentException("Invalid day of the week: " + name);
+    }
+
+    /**
+     * Find the start times of all occurrences that overlap a window of time, the same way as
+     * CalendarDao.getEventsBetween() (starting before the end of the window and ending at or after
+     * its start).
+     * @param seriesStart the start time of the first occurrence in ms
+     * @param duration the duration of each occurrence in ms
+     * @param start the start of the window in ms
+     * @param end the end of the window in ms (exclusive)
+     * @param exceptions the start times of occurrences that have been removed
+     * @param zone the time zone the occurrences repeat in
+     * @return the start times of the occurrences in the window, in order
+     */
+    public List<Long> occurrencesBetween(long seriesStart, long duration, long start, long end,
+                                         Set<Long> exceptions, TimeZone zone) {
+        List<Long> found = new ArrayList<>();
+        ZonedDateTime first = Instant.ofEpochMilli(seriesStart).atZone(zone.toZoneId());
+        int period = count >= 0 && !hasOnePerPeriod(first) ? 0 : firstPeriodReaching(first, start - duration);
+        int seen = count >= 0 ? occurrencesBefore(first, period) : 0;
+        for (; ; period++) {
+            long periodStart = toMillis(periodStart(first, period));
+            if (periodStart >= end || periodStart > until) { return found; }
+            for (long occurrence : occurrencesIn(first, period)) {
+                if ((count >= 0 && seen >= count) || occurrence > until || occurrence >= end) { return found; }
+                seen++;
+                if (occurrence + duration >= start && !exceptions.contains(occurrence)) { found.add(occurrence); }
+            }
+        }
+    }
+
+    /**
+     * Find the start time of the last occurrence.
+     * @param seriesStart the start time of the first occurrence in ms
+     * @param zone the time zone the occurrences repeat in
+     * @return the start time of the last occurrence in ms, or null if it repeats forever
+     */
+    public Long lastOccurrence(long seriesStart, TimeZone zone) {
+        if (count < 0) { return until == Long.MAX_VALUE ? null : Math.max(seriesStart, until); }
+        List<Long> all = occurrencesBetween(seriesStart, 0, seriesStart, Long.MAX_VALUE,
+                Collections.emptySet(), zone);
+        return all.isEmpty() ? seriesStart : all.get(all.size() - 1);
+    }
+
+    /**
+     * @return true if every period is certain to have the same number of occurrences, which is not
+     *         the case for monthly and yearly rules on days some months do not have
+     */
+    private boolean hasOnePerPeriod(ZonedDateTime first) {
+        int day = first.getDayOfMonth();
+        switch (frequency) {
+            case MONTHLY: return day <= 28;
+            case YEARLY: return day <= 28 || first.getMonth() != Month.FEBRUARY;
+            default: return true;
+        }
+    }
+
+    /**
+     * @return the number of the earliest period that could have an occurrence at or after the given
+     *         time. This may be a bit earlier than needed, but never later.
+     */
+    private int firstPeriodReaching(ZonedDateTime first, long time) {
+        long seriesStart = toMillis(first);
+        if (time <= seriesStart) { return 0; }
+        long periods;
+        switch (frequency) {
+            case DAILY: periods = (time - seriesStart) / DAY; break;
+            case WEEKLY: periods = (time - toMillis(periodStart(first, 0))) / WEEK; break;
+            default:
+                ZonedDateTime target = Instant.ofEpochMilli(time).atZone(first.getZone());
+                periods = target.getYear() - first.getYear();
+                if (frequency == Frequency.MONTHLY) {
+                    periods = periods * 12 + target.getMonthValue() - first.getMonthValue();
+                }
+        }
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, periods / interval - 1));
+    }
+
+    /** @return the number of occurrences in all periods before the given one */
+    private int occurrencesBefore(ZonedDateTime first, int period) {
+        if (period == 0) { return 0; }
+        if (frequency != Frequency.WEEKLY) { return period; }
+        int firstWeek = occurrencesIn(first, 0).size();
+        return firstWeek + (period - 1) * weekDays(first).length;
+    }
+
+    /**
+     * @return the start of the given period, which comes at or before all of its occurrences. Each
+     *         period is found from the first occurrence in a single step, so a change of offset
+     *         along the way cannot move the time of day of later periods.
+     */
+    private ZonedDateTime periodStart(ZonedDateTime first, int period) {
+        if (frequency == Frequency.WEEKLY) { return onDayOfWeek(first, period, DayOfWeek.MONDAY); }
+        return first.plus((long) period * interval, frequency.unit);
+    }
+
+    /** @return the time of day of the first occurrence on the given day of the given week */
+    private ZonedDateTime onDayOfWeek(ZonedDateTime first, int period, DayOfWeek day) {
+        return first.plusDays(7L * period * interval - daysSinceMonday(first.getDayOfWeek()) + daysSinceMonday(day));
+    }
+
+    /** @return the start times of the occurrences in the given period, in order */
+    private List<Long> occurrencesIn(ZonedDateTime first, int period) {
+        if (frequency == Frequency.DAILY) {
+            return Collections.singletonList(toMillis(periodStart(first, period)));
+        } else if (frequency != Frequency.WEEKLY) {
+            ZonedDateTime occurrence = periodStart(first, period);
+            boolean valid = occurrence.getDayOfMonth() == first.getDayOfMonth() &&
+                    (frequency != Frequency.YEARLY || occurrence.getMonth() == first.getMonth());
+            return valid ? Collections.singletonList(toMillis(occurrence)) : Collections.emptyList();
+        }
+        List<Long> occurrences = new ArrayList<>();
+        long seriesStart = toMillis(first);
+        for (DayOfWeek day : weekDays(first)) {
+            long occurrence = toMillis(onDayOfWeek(first, period, day));
+            if (occurrence >= seriesStart) { occurrences.add(occurrence); }
+        }
+        return occurrences;
+    }
+
+    /** @return the days of the week a weekly rule occurs on */
+    private DayOfWeek[] weekDays(ZonedDateTime first) {
+        return byDay.length > 0 ? byDay : new DayOfWeek[]{first.getDayOfWeek()};
+    }
+
+    /** @return the number of days from Monday to the given day of the week */
+    private static int daysSinceMonday(DayOfWeek day) { return day.getValue() - 1; }
+
+    /** @return a date/time in ms since the epoch */
+    private static long toMillis(ZonedDateTime time) { return time.toInstant().toEpochMilli(); }
+
+    /**
+     * @return this rule written like "FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE"
+     */
+    @Override
+    public String toString() {
+        StringBuilder rule = new StringBuilder("FREQ=").append(frequency.name());
+        if (interval != 1) { rule.append(";INTERVAL=").append(interval); }
+        if (count >= 0) { rule.append(";COUNT=").append(count); }
+        if (until != Long.MAX_VALUE) { rule.append(";UNTIL=").append(UTC_FORMAT.format(Instant.ofEpochMilli(until))); }
+        if (byDay.length > 0) {
+            rule.append(";BYDAY=");
+            for (int i = 0; i < byDay.length; i++) {
+                if (i > 0) { rule.append(','); }
+                rule.append(DAY_NAMES[byDay[i].getValue() - 1]);
+            }
+        }
+        return rule.toString();
+    }
+}
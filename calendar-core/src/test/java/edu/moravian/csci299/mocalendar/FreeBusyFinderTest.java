@@ -0,0 +1,135 @@
+package edu.moravian.csci299.mocalendar;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+public class FreeBusyFinderTest {
+    private static final long MINUTE = 60 * 1000L;
+    // every time in these tests is a multiple of this, so busy time can be checked one step at a time
+    private static final long STEP = 15 * MINUTE;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+    // a Monday at midnight UTC
+    private static final long BASE = 1609718400000L;
+
+    private TimeZone defaultZone;
+
+    @Before
+    public void setUp() {
+        defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+    }
+
+    @After
+    public void tearDown() { TimeZone.setDefault(defaultZone); }
+
+    private static Event event(long start, Long duration) {
+        Event event = new Event();
+        event.startTime = new Date(start);
+        event.endTime = duration == null ? null : new Date(start + duration);
+        return event;
+    }
+
+    private static FreeBusyFinder.Slot slot(long start, long end) { return new FreeBusyFinder.Slot(start, end); }
+
+    /**
+     * Find the busy blocks of a range by marking each step of it that any occurrence of any event
+     * covers, and then collecting the runs of busy steps.
+     */
+    private static List<FreeBusyFinder.Slot> bruteForceBusy(List<Event> events, long start, long end) {
+        boolean[] busy = new boolean[(int) ((end - start) / STEP)];
+        for (Event event : events) {
+            for (Event occurrence : event.occurrencesBetween(start, end)) {
+                if (occurrence.endTime == null) { continue; }
+                long from = Math.max(start, occurrence.startTime.getTime());
+                long to = Math.min(end, occurrence.endTime.getTime());
+                for (long time = from; time < to; time += STEP) { busy[(int) ((time - start) / STEP)] = true; }
+            }
+        }
+        List<FreeBusyFinder.Slot> blocks = new ArrayList<>();
+        for (int i = 0; i < busy.length; i++) {
+            if (!busy[i]) { continue; }
+            int j = i;
+            while (j < busy.length && busy[j]) { j++; }
+            blocks.add(slot(start + i * STEP, start + j * STEP));
+            i = j;
+        }
+        return blocks;
+    }
+
+    /** @return the gaps between busy blocks within a range that are at least the given length */
+    private static List<FreeBusyFinder.Slot> gaps(List<FreeBusyFinder.Slot> busy, long start, long end, long minLength) {
+        List<FreeBusyFinder.Slot> free = new ArrayList<>();
+        long freeStart = start;
+        for (FreeBusyFinder.Slot block : busy) {
+            if (block.start - freeStart >= Math.max(minLength, 1)) { free.add(slot(freeStart, block.start)); }
+            freeStart = block.end;
+        }
+        if (end - freeStart >= Math.max(minLength, 1)) { free.add(slot(freeStart, end)); }
+        return free;
+    }
+
+    @Test
+    public void mergesOverlappingAndTouchingEvents() {
+        InMemoryEventStore store = new InMemoryEventStore();
+        store.putAll(Arrays.asList(
+                event(BASE + HOUR, HOUR),
+                event(BASE + 90 * MINUTE, HOUR),    // overlaps the first
+                event(BASE + 150 * MINUTE, HOUR),   // touches the end of the second
+                event(BASE + 5 * HOUR, null),       // an assignment is not busy
+                event(BASE + 6 * HOUR, 3 * HOUR)));  // clipped to the range
+        FreeBusyFinder finder = new FreeBusyFinder(store);
+        assertEquals(Arrays.asList(slot(BASE + HOUR, BASE + 210 * MINUTE), slot(BASE + 6 * HOUR, BASE + 8 * HOUR)),
+                finder.findBusy(BASE, BASE + 8 * HOUR));
+        assertEquals(Arrays.asList(slot(BASE, BASE + HOUR), slot(BASE + 210 * MINUTE, BASE + 6 * HOUR)),
+                finder.findFree(BASE, BASE + 8 * HOUR, 30 * MINUTE));
+        assertEquals(Arrays.asList(slot(BASE + 210 * MINUTE, BASE + 6 * HOUR)),
+                finder.findFree(BASE, BASE + 8 * HOUR, 2 * HOUR));
+        assertEquals(0, finder.findBusy(BASE + HOUR, BASE + HOUR).size());
+    }
+
+    @Test
+    public void matchesBruteForceOverAHundredThousandEvents() {
+        Random random = new Random(21);
+        long[] durations = {STEP, 2 * STEP, HOUR, 2 * HOUR, 3 * HOUR, DAY, 3 * DAY};
+        String[] rules = {"FREQ=DAILY", "FREQ=WEEKLY;BYDAY=TU,TH", "FREQ=DAILY;COUNT=20", "FREQ=MONTHLY"};
+        List<Event> events = new ArrayList<>(100000);
+        for (int i = 0; i < 100000; i++) {
+            long start = BASE + random.nextInt((int) (365 * DAY / STEP)) * STEP;
+            // most events are short, with a few assignments and a few lasting days
+            Long duration = random.nextInt(20) == 0 ? null : durations[Math.min(random.nextInt(12), durations.length - 1)];
+            Event event = event(start, duration);
+            if (i % 1000 == 0) {
+                event.endTime = new Date(start + HOUR);
+                event.recurrence = rules[random.nextInt(rules.length)];
+            }
+            events.add(event);
+        }
+        InMemoryEventStore store = new InMemoryEventStore();
+        store.putAll(events);
+        FreeBusyFinder finder = new FreeBusyFinder(store);
+
+        for (int i = 0; i < 30; i++) {
+            long start = BASE + random.nextInt((int) (380 * DAY / STEP)) * STEP - 5 * DAY;
+            long end = start + (1 + random.nextInt(4 * 24 * 4)) * STEP;
+            List<FreeBusyFinder.Slot> busy = bruteForceBusy(events, start, end);
+            assertEquals(busy, finder.findBusy(start, end));
+            long minLength = random.nextInt(3) * HOUR / 2;
+            assertEquals(gaps(busy, start, end, minLength), finder.findFree(start, end, minLength));
+        }
+
+        // a quiet stretch before any of the events is entirely free
+        assertEquals(Arrays.asList(slot(BASE - 10 * DAY, BASE - 5 * DAY)),
+                finder.findFree(BASE - 10 * DAY, BASE - 5 * DAY, HOUR));
+    }
+}
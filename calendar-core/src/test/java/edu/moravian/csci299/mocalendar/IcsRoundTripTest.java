@@ -0,0 +1,131 @@
+package edu.moravian.csci299.mocalendar;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class IcsRoundTripTest {
+    private static final ZoneId ZONE = ZoneId.of("America/New_York");
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private TimeZone defaultZone;
+
+    @Before
+    public void setUp() {
+        defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone(ZONE));
+    }
+
+    @After
+    public void tearDown() { TimeZone.setDefault(defaultZone); }
+
+    /** @return the given local date/time in New York in ms since the epoch */
+    private static long at(int year, int month, int day, int hour, int minute) {
+        return LocalDateTime.of(year, month, day, hour, minute).atZone(ZONE).toInstant().toEpochMilli();
+    }
+
+    private static Event event(String name, EventType type, long start, Long duration) {
+        Event event = new Event();
+        event.name = name;
+        event.type = type;
+        event.startTime = new Date(start);
+        event.endTime = duration == null ? null : new Date(start + duration);
+        return event;
+    }
+
+    /** Write the events to a file and read them back */
+    private static List<IcsReader.IcsEvent> roundTrip(List<Event> events) throws IOException {
+        StringWriter file = new StringWriter();
+        try (IcsWriter writer = new IcsWriter(file, ZONE)) {
+            for (Event event : events) { writer.write(event); }
+        }
+        for (String line : file.toString().split("\r\n")) {
+            assertTrue(line, line.getBytes("UTF-8").length <= 75);
+        }
+        List<IcsReader.IcsEvent> read = new ArrayList<>();
+        try (IcsReader reader = new IcsReader(new StringReader(file.toString()), ZONE)) {
+            IcsReader.IcsEvent event;
+            while ((event = reader.next()) != null) { read.add(event); }
+        }
+        return read;
+    }
+
+    private static void assertSameEvent(Event expected, Event actual) {
+        assertEquals(expected.id, actual.id);
+        assertEquals(expected.name, actual.name);
+        assertEquals(expected.type, actual.type);
+        assertEquals(expected.description, actual.description);
+        assertEquals(expected.startTime, actual.startTime);
+        assertEquals(expected.endTime, actual.endTime);
+        assertEquals(expected.recurrence, actual.recurrence);
+        assertEquals(expected.recurrenceEnd, actual.recurrenceEnd);
+        assertEquals(expected.recurrenceExceptions, actual.recurrenceExceptions);
+        assertEquals(expected.recurrenceParentId, actual.recurrenceParentId);
+        assertEquals(expected.recurrenceId, actual.recurrenceId);
+    }
+
+    @Test
+    public void eventsComeBackTheSame() throws IOException {
+        Event meeting = event("Club meeting", EventType.CLUB, at(2021, 3, 2, 18, 30), 90 * 60 * 1000L);
+        meeting.description = "Bring snacks; chips, pretzels\nand a \\ backslash";
+        Event assignment = event("Homework 3", EventType.ASSIGNMENT, at(2021, 3, 5, 23, 59), null);
+        // a long name with characters of several lengths in UTF-8 needs folding between characters
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 20; i++) { name.append("Caf\u00e9 \u65e5\u672c \ud83c\udfb5 "); }
+        Event longName = event(name.toString().trim(), EventType.MUSIC_PRACTICE, at(2021, 3, 6, 10, 0), HOUR);
+        Event generic = event("Dentist", EventType.GENERIC, at(2021, 3, 8, 9, 15), HOUR / 2);
+
+        List<Event> events = Arrays.asList(meeting, assignment, longName, generic);
+        List<IcsReader.IcsEvent> read = roundTrip(events);
+        assertEquals(events.size(), read.size());
+        for (int i = 0; i < events.size(); i++) {
+            assertSameEvent(events.get(i), read.get(i).event);
+            assertNull(read.get(i).recurrenceId);
+        }
+    }
+
+    @Test
+    public void repeatingEventsAndOverridesComeBackTheSame() throws IOException {
+        // the series crosses the start of daylight saving time on March 14, 2021
+        Event lecture = event("CSCI 299 lecture", EventType.CLASS, at(2021, 3, 1, 9, 0), 50 * 60 * 1000L);
+        lecture.recurrence = "FREQ=WEEKLY;BYDAY=MO,WE,FR;UNTIL=20210430";
+        lecture.recurrenceExceptions.add(new Date(at(2021, 3, 3, 9, 0)));
+        Event moved = lecture.overrideOccurrence(at(2021, 3, 17, 9, 0));
+        moved.startTime = new Date(at(2021, 3, 17, 13, 0));
+        moved.endTime = new Date(at(2021, 3, 17, 14, 0));
+        moved.name = "CSCI 299 lecture (moved)";
+        lecture.updateRecurrenceEnd();
+
+        List<IcsReader.IcsEvent> read = roundTrip(Arrays.asList(lecture, moved));
+        assertEquals(2, read.size());
+        assertSameEvent(lecture, read.get(0).event);
+        assertSameEvent(moved, read.get(1).event);
+        // the override is written under the UID of its series with the occurrence it replaces
+        assertEquals(read.get(0).uid, read.get(1).uid);
+        assertEquals(new Date(at(2021, 3, 17, 9, 0)), read.get(1).recurrenceId);
+
+        // the occurrences after the change of offset stay at the same local time, with the replaced
+        // occurrence skipped in favour of its override
+        List<Event> occurrences = Event.expandBetween(Arrays.asList(read.get(0).event, read.get(1).event),
+                at(2021, 3, 15, 0, 0), at(2021, 3, 20, 0, 0));
+        List<Date> starts = new ArrayList<>();
+        for (Event occurrence : occurrences) { starts.add(occurrence.startTime); }
+        assertEquals(Arrays.asList(new Date(at(2021, 3, 15, 9, 0)), new Date(at(2021, 3, 17, 13, 0)),
+                new Date(at(2021, 3, 19, 9, 0))), starts);
+    }
+}
@@ -0,0 +1,239 @@
+package edu.moravian.csci299.mocalendar;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class InMemoryEventStoreTest {
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final long DAY = 24 * HOUR;
+    // a Monday at midnight UTC
+    private static final long BASE = 1609718400000L;
+
+    private TimeZone defaultZone;
+    private InMemoryEventStore store;
+
+    @Before
+    public void setUp() {
+        defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+        store = new InMemoryEventStore();
+    }
+
+    @After
+    public void tearDown() { TimeZone.setDefault(defaultZone); }
+
+    private static Event event(long start, long duration) {
+        Event event = new Event();
+        event.startTime = new Date(start);
+        event.endTime = new Date(start + duration);
+        return event;
+    }
+
+    private static Event repeating(long start, long duration, String rule) {
+        Event event = event(start, duration);
+        event.recurrence = rule;
+        return event;
+    }
+
+    /** @return the id and start time of each event, which identifies an occurrence */
+    private static List<String> keys(List<Event> events) {
+        List<String> keys = new ArrayList<>(events.size());
+        for (Event event : events) { keys.add(event.startTime.getTime() + " " + event.id); }
+        return keys;
+    }
+
+    /** @return the occurrences overlapping a range found by checking every event */
+    private static List<Event> bruteForceOverlapping(Collection<Event> events, long start, long end) {
+        return Event.expandBetween(new ArrayList<>(events), start, end);
+    }
+
+    /** @return the occurrences starting within a range found by checking every event */
+    private static List<Event> bruteForceStarting(Collection<Event> events, long start, long end) {
+        List<Event> found = new ArrayList<>();
+        for (Event occurrence : bruteForceOverlapping(events, start, end)) {
+            if (occurrence.startTime.getTime() >= start) { found.add(occurrence); }
+        }
+        return found;
+    }
+
+    /** Check that the store finds the same occurrences as checking every event, in any order for equal starts */
+    private void assertMatchesBruteForce(Collection<Event> events, long start, long end) {
+        assertEquals(sorted(keys(bruteForceOverlapping(events, start, end))), sorted(keys(store.getEventsOverlapping(start, end))));
+        assertEquals(sorted(keys(bruteForceStarting(events, start, end))), sorted(keys(store.getEventsStartingBetween(start, end))));
+        assertOrdered(store.getEventsOverlapping(start, end));
+    }
+
+    private static List<String> sorted(List<String> keys) {
+        String[] array = keys.toArray(new String[0]);
+        Arrays.sort(array);
+        return Arrays.asList(array);
+    }
+
+    private static void assertOrdered(List<Event> events) {
+        for (int i = 1; i < events.size(); i++) {
+            assertEquals(true, events.get(i - 1).startTime.getTime() <= events.get(i).startTime.getTime());
+        }
+    }
+
+    @Test
+    public void findsEventsOverlappingAndStartingInARange() {
+        Event before = event(BASE, HOUR);
+        Event ongoing = event(BASE + HOUR, 3 * HOUR);
+        Event inside = event(BASE + 3 * HOUR, HOUR);
+        Event endsAtStart = event(BASE, 2 * HOUR);
+        Event after = event(BASE + 5 * HOUR, HOUR);
+        store.putAll(Arrays.asList(before, ongoing, inside, endsAtStart, after));
+        // an event that ends exactly at the start of the range overlaps it, like the database queries
+        assertEquals(Arrays.asList(endsAtStart, ongoing, inside), store.getEventsOverlapping(BASE + 2 * HOUR, BASE + 5 * HOUR));
+        assertEquals(Arrays.asList(inside), store.getEventsStartingBetween(BASE + 2 * HOUR, BASE + 5 * HOUR));
+        assertEquals(5, store.size());
+    }
+
+    @Test
+    public void keepsEventsWithTheSameStartInTheOrderTheyWereAdded() {
+        Event first = event(BASE, HOUR), second = event(BASE, 10 * DAY), third = event(BASE, 0);
+        store.put(first);
+        store.put(second);
+        store.put(third);
+        assertEquals(Arrays.asList(first, second, third), store.getEventsOverlapping(BASE, BASE + HOUR));
+    }
+
+    @Test
+    public void putReplacesAndRemoveForgetsEvents() {
+        Event event = event(BASE, HOUR);
+        store.put(event);
+        Event moved = event.copy();
+        moved.startTime = new Date(BASE + DAY);
+        moved.endTime = new Date(BASE + DAY + HOUR);
+        store.put(moved);
+        assertEquals(1, store.size());
+        assertSame(moved, store.get(event.id));
+        assertEquals(0, store.getEventsOverlapping(BASE, BASE + 2 * HOUR).size());
+        assertEquals(1, store.getEventsOverlapping(BASE + DAY, BASE + DAY + 2 * HOUR).size());
+
+        // an event changed without being put again is still found by where it was stored
+        moved.startTime = new Date(BASE + 10 * DAY);
+        store.remove(event.id);
+        assertNull(store.get(event.id));
+        assertEquals(0, store.size());
+        assertEquals(0, store.getEventsOverlapping(BASE, BASE + 20 * DAY).size());
+    }
+
+    @Test
+    public void putAllReplacesStoredEvents() {
+        Event event = event(BASE, HOUR), other = event(BASE + HOUR, HOUR);
+        store.putAll(Arrays.asList(event, other));
+        Event longer = event.copy();
+        longer.endTime = new Date(BASE + 30 * DAY);
+        Event series = repeating(BASE, HOUR, "FREQ=DAILY");
+        store.putAll(Arrays.asList(longer, series));
+        assertEquals(3, store.size());
+        assertSame(longer, store.get(event.id));
+        assertEquals(Arrays.asList(longer), store.getEventsOverlapping(BASE + 20 * DAY + 2 * HOUR, BASE + 20 * DAY + 3 * HOUR));
+        assertEquals(2, store.getEventsOverlapping(BASE + 20 * DAY, BASE + 21 * DAY).size());
+    }
+
+    @Test
+    public void expandsRepeatingEvents() {
+        Event daily = repeating(BASE + 9 * HOUR, HOUR, "FREQ=DAILY;COUNT=3");
+        Event weekly = repeating(BASE + 10 * HOUR, HOUR, "FREQ=WEEKLY");
+        daily.recurrenceExceptions.add(new Date(BASE + DAY + 9 * HOUR));
+        store.put(daily);
+        store.put(weekly);
+        List<Event> found = store.getEventsOverlapping(BASE, BASE + 14 * DAY);
+        List<Long> starts = new ArrayList<>();
+        for (Event occurrence : found) { starts.add(occurrence.startTime.getTime()); }
+        assertEquals(Arrays.asList(BASE + 9 * HOUR, BASE + 10 * HOUR, BASE + 2 * DAY + 9 * HOUR,
+                BASE + 7 * DAY + 10 * HOUR), starts);
+        // removing a repeating event removes all of its occurrences
+        store.remove(weekly.id);
+        assertEquals(2, store.getEventsOverlapping(BASE, BASE + 14 * DAY).size());
+    }
+
+    @Test
+    public void oneLongEventOnlyWidensTheSearchOfItsOwnGroup() {
+        // a year-long event used to make every later query look at every event stored after it
+        Map<UUID, Event> events = new LinkedHashMap<>();
+        Event year = event(BASE, 365 * DAY);
+        events.put(year.id, year);
+        for (int i = 0; i < 10000; i++) {
+            Event event = event(BASE + i * HOUR, HOUR / 2);
+            events.put(event.id, event);
+        }
+        store.putAll(events.values());
+        for (int i = 0; i < 100; i++) {
+            long start = BASE + i * 97 * HOUR;
+            assertMatchesBruteForce(events.values(), start, start + 5 * HOUR);
+        }
+        assertEquals(Arrays.asList(year), store.getEventsOverlapping(BASE + 100 * HOUR + HOUR / 2 + 1, BASE + 101 * HOUR));
+        assertEquals(3, store.getEventsOverlapping(BASE + 9000 * HOUR + 1, BASE + 9003 * HOUR).size());
+    }
+
+    @Test
+    public void randomWritesMatchBruteForce() {
+        Random random = new Random(2021);
+        String[] rules = {"FREQ=DAILY", "FREQ=DAILY;COUNT=5", "FREQ=WEEKLY;BYDAY=MO,WE,FR", "FREQ=MONTHLY",
+                "FREQ=YEARLY;COUNT=3", "FREQ=DAILY;INTERVAL=3;UNTIL=20210401"};
+        long[] durations = {0, 15 * 60 * 1000L, HOUR, 3 * HOUR, DAY, 5 * DAY, 40 * DAY, 400 * DAY};
+        Map<UUID, Event> events = new LinkedHashMap<>();
+        List<UUID> ids = new ArrayList<>();
+        for (int round = 0; round < 200; round++) {
+            int action = random.nextInt(10);
+            if (action < 5 || ids.isEmpty()) {
+                Event event = newRandomEvent(random, rules, durations);
+                store.put(event);
+                if (events.put(event.id, event) == null) { ids.add(event.id); }
+            } else if (action < 7) {
+                List<Event> batch = new ArrayList<>();
+                for (int i = 0; i < 50; i++) {
+                    Event event = newRandomEvent(random, rules, durations);
+                    // replace some of the events already stored
+                    if (random.nextInt(4) == 0) { event.id = ids.get(random.nextInt(ids.size())); }
+                    batch.add(event);
+                }
+                store.putAll(batch);
+                for (Event event : batch) {
+                    if (events.put(event.id, event) == null) { ids.add(event.id); }
+                }
+            } else {
+                UUID id = ids.remove(random.nextInt(ids.size()));
+                events.remove(id);
+                store.remove(id);
+            }
+            assertEquals(events.size(), store.size());
+            for (int i = 0; i < 5; i++) {
+                long start = BASE + (long) (random.nextDouble() * 500 * DAY) - 100 * DAY;
+                long length = durations[random.nextInt(durations.length)] + 1;
+                assertMatchesBruteForce(events.values(), start, start + length);
+            }
+        }
+    }
+
+    private static Event newRandomEvent(Random random, String[] rules, long[] durations) {
+        long start = BASE + (long) (random.nextDouble() * 365 * DAY) / (15 * 60 * 1000L) * (15 * 60 * 1000L);
+        long duration = durations[random.nextInt(durations.length)];
+        Event event = event(start, duration);
+        if (random.nextInt(5) == 0) { event.endTime = null; }
+        if (random.nextInt(6) == 0) {
+            event.endTime = new Date(start + Math.min(duration, 3 * HOUR));
+            event.recurrence = rules[random.nextInt(rules.length)];
+        }
+        return event;
+    }
+}
@@ -0,0 +1,276 @@
+package edu.moravian.csci299.mocalendar;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RecurrenceTest {
+    private static final ZoneId ZONE = ZoneId.of("America/New_York");
+    private static final TimeZone TIME_ZONE = TimeZone.getTimeZone(ZONE);
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private TimeZone defaultZone;
+
+    @Before
+    public void setUp() {
+        defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TIME_ZONE);
+    }
+
+    @After
+    public void tearDown() { TimeZone.setDefault(defaultZone); }
+
+    /** @return the given local date/time in New York in ms since the epoch */
+    private static long at(int year, int month, int day, int hour) {
+        return LocalDateTime.of(year, month, day, hour, 0).atZone(ZONE).toInstant().toEpochMilli();
+    }
+
+    /** @return the given time as a local date/time in New York */
+    private static ZonedDateTime local(long time) { return Instant.ofEpochMilli(time).atZone(ZONE); }
+
+    /** @return the occurrences of a rule within a window, with no exceptions */
+    private static List<Long> occurrences(String rule, long seriesStart, long duration, long start, long end) {
+        return Recurrence.parse(rule, TIME_ZONE).occurrencesBetween(seriesStart, duration, start, end,
+                Collections.emptySet(), TIME_ZONE);
+    }
+
+    @Test
+    public void daily() {
+        long start = at(2021, 3, 1, 9);
+        List<Long> found = occurrences("FREQ=DAILY", start, HOUR, start, at(2021, 3, 4, 0));
+        assertEquals(3, found.size());
+        for (int i = 0; i < found.size(); i++) { assertEquals(at(2021, 3, 1 + i, 9), (long) found.get(i)); }
+    }
+
+    @Test
+    public void dailyWithInterval() {
+        long start = at(2021, 3, 1, 9);
+        List<Long> found = occurrences("FREQ=DAILY;INTERVAL=3", start, HOUR, at(2021, 3, 5, 0), at(2021, 3, 11, 0));
+        assertEquals(2, found.size());
+        assertEquals(at(2021, 3, 7, 9), (long) found.get(0));
+        assertEquals(at(2021, 3, 10, 9), (long) found.get(1));
+    }
+
+    @Test
+    public void weeklyByDay() {
+        // Monday, September 6, 2021
+        long start = at(2021, 9, 6, 10);
+        List<Long> found = occurrences("FREQ=WEEKLY;BYDAY=MO,WE,FR", start, HOUR, start, at(2021, 9, 20, 0));
+        assertEquals(6, found.size());
+        DayOfWeek[] days = {DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY, DayOfWeek.FRIDAY};
+        for (int i = 0; i < found.size(); i++) {
+            ZonedDateTime occurrence = local(found.get(i));
+            assertEquals(days[i % 3], occurrence.getDayOfWeek());
+            assertEquals(10, occurrence.getHour());
+        }
+    }
+
+    @Test
+    public void weeklyByDayStartingMidWeek() {
+        // Wednesday, September 8, 2021, so the Monday of the first week is not an occurrence
+        long start = at(2021, 9, 8, 10);
+        List<Long> found = occurrences("FREQ=WEEKLY;BYDAY=MO,WE;COUNT=3", start, HOUR, at(2021, 9, 1, 0), at(2021, 10, 1, 0));
+        assertEquals(3, found.size());
+        assertEquals(at(2021, 9, 8, 10), (long) found.get(0));
+        assertEquals(at(2021, 9, 13, 10), (long) found.get(1));
+        assertEquals(at(2021, 9, 15, 10), (long) found.get(2));
+    }
+
+    @Test
+    public void monthlyOnDay31SkipsShortMonths() {
+        long start = at(2021, 1, 31, 12);
+        List<Long> found = occurrences("FREQ=MONTHLY", start, HOUR, start, at(2022, 1, 1, 0));
+        int[] months = {1, 3, 5, 7, 8, 10, 12};
+        assertEquals(months.length, found.size());
+        for (int i = 0; i < months.length; i++) { assertEquals(at(2021, months[i], 31, 12), (long) found.get(i)); }
+    }
+
+    @Test
+    public void yearlyOnFebruary29OnlyInLeapYears() {
+        long start = at(2020, 2, 29, 8);
+        List<Long> found = occurrences("FREQ=YEARLY", start, HOUR, start, at(2033, 1, 1, 0));
+        assertEquals(4, found.size());
+        for (int i = 0; i < found.size(); i++) { assertEquals(at(2020 + 4 * i, 2, 29, 8), (long) found.get(i)); }
+    }
+
+    @Test
+    public void count() {
+        long start = at(2021, 3, 1, 9);
+        Recurrence rule = Recurrence.parse("FREQ=DAILY;COUNT=5", TIME_ZONE);
+        assertEquals(5, occurrences("FREQ=DAILY;COUNT=5", start, HOUR, start, at(2022, 1, 1, 0)).size());
+        // a window starting partway through the series still stops after the fifth occurrence
+        List<Long> found = occurrences("FREQ=DAILY;COUNT=5", start, HOUR, at(2021, 3, 4, 0), at(2022, 1, 1, 0));
+        assertEquals(2, found.size());
+        assertEquals(at(2021, 3, 5, 9), (long) found.get(1));
+        assertEquals(at(2021, 3, 5, 9), (long) rule.lastOccurrence(start, TIME_ZONE));
+    }
+
+    @Test
+    public void countOnDaysSomeMonthsDoNotHave() {
+        long start = at(2021, 1, 31, 12);
+        // the months without a 31st are skipped rather than counted, so the third is in May
+        List<Long> found = occurrences("FREQ=MONTHLY;COUNT=3", start, HOUR, at(2021, 4, 1, 0), at(2022, 1, 1, 0));
+        assertEquals(1, found.size());
+        assertEquals(at(2021, 5, 31, 12), (long) found.get(0));
+    }
+
+    @Test
+    public void until() {
+        long start = at(2021, 3, 1, 9);
+        // a date-only UNTIL includes the whole of that day
+        List<Long> found = occurrences("FREQ=DAILY;UNTIL=20210305", start, HOUR, start, at(2022, 1, 1, 0));
+        assertEquals(5, found.size());
+        assertEquals(at(2021, 3, 5, 9), (long) found.get(4));
+        // a UTC UNTIL of 14:00Z is 9 AM in New York, so the occurrence at that time is included
+        found = occurrences("FREQ=DAILY;UNTIL=20210303T140000Z", start, HOUR, start, at(2022, 1, 1, 0));
+        assertEquals(3, found.size());
+        assertEquals(at(2021, 3, 3, 9), (long) Recurrence.parse("FREQ=DAILY;UNTIL=20210303T140000Z", TIME_ZONE)
+                .lastOccurrence(start, TIME_ZONE));
+    }
+
+    @Test
+    public void foreverHasNoLastOccurrence() {
+        assertNull(Recurrence.parse("FREQ=WEEKLY", TIME_ZONE).lastOccurrence(at(2021, 3, 1, 9), TIME_ZONE));
+    }
+
+    @Test
+    public void invalidUntilIsNotARule() {
+        // too short, not digits, and dates or times that do not exist
+        String[] untils = {"2021", "202103", "2021031", "2021O305", "20210305T1400", "20210305X140000Z",
+                "20211340", "20210230", "20210305T250000Z", "20210305T126000"};
+        for (String until : untils) {
+            assertNull(until, Recurrence.parseOrNull("FREQ=DAILY;UNTIL=" + until, TIME_ZONE));
+            Event event = new Event();
+            event.recurrence = "FREQ=DAILY;UNTIL=" + until;
+            event.updateRecurrenceEnd();
+            assertEquals(1, event.occurrencesBetween(event.startTime.getTime(), event.startTime.getTime() + 1).size());
+        }
+    }
+
+    @Test
+    public void partNamesIgnoreTheDefaultLocale() {
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            Recurrence rule = Recurrence.parse("freq=daily;interval=2;until=20210305", TIME_ZONE);
+            assertEquals("FREQ=DAILY;INTERVAL=2;UNTIL=20210306T045959Z", rule.toString());
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    public void exceptionsAreSkipped() {
+        long start = at(2021, 3, 1, 9);
+        Set<Long> exceptions = new HashSet<>();
+        exceptions.add(at(2021, 3, 2, 9));
+        List<Long> found = Recurrence.parse("FREQ=DAILY", TIME_ZONE).occurrencesBetween(start, HOUR, start,
+                at(2021, 3, 4, 0), exceptions, TIME_ZONE);
+        assertEquals(2, found.size());
+        assertEquals(at(2021, 3, 1, 9), (long) found.get(0));
+        assertEquals(at(2021, 3, 3, 9), (long) found.get(1));
+    }
+
+    @Test
+    public void eventExceptionsAndOverrides() {
+        Event event = new Event();
+        event.startTime = new Date(at(2021, 3, 1, 9));
+        event.endTime = new Date(at(2021, 3, 1, 10));
+        event.recurrence = "FREQ=DAILY";
+        event.recurrenceExceptions.add(new Date(at(2021, 3, 2, 9)));
+        Event override = event.overrideOccurrence(at(2021, 3, 3, 9));
+        override.startTime = new Date(at(2021, 3, 3, 15));
+        override.endTime = new Date(at(2021, 3, 3, 16));
+
+        List<Event> events = new ArrayList<>();
+        events.add(event);
+        events.add(override);
+        List<Event> found = Event.expandBetween(events, at(2021, 3, 1, 0), at(2021, 3, 5, 0));
+        List<Long> starts = new ArrayList<>();
+        for (Event occurrence : found) { starts.add(occurrence.startTime.getTime()); }
+        List<Long> expected = new ArrayList<>();
+        expected.add(at(2021, 3, 1, 9));
+        expected.add(at(2021, 3, 3, 15));
+        expected.add(at(2021, 3, 4, 9));
+        assertEquals(expected, starts);
+        assertEquals(event.id, found.get(0).id);
+        assertEquals(override.id, found.get(1).id);
+        assertEquals(event.id, override.recurrenceParentId);
+
+        // changing the exceptions of an occurrence leaves the series and the other occurrences alone
+        List<Event> occurrences = event.occurrencesBetween(at(2021, 3, 1, 0), at(2021, 3, 6, 0));
+        assertNotSame(event.recurrenceExceptions, occurrences.get(0).recurrenceExceptions);
+        occurrences.get(0).recurrenceExceptions.add(new Date(at(2021, 3, 4, 9)));
+        assertEquals(2, event.recurrenceExceptions.size());
+        assertEquals(2, occurrences.get(1).recurrenceExceptions.size());
+    }
+
+    @Test
+    public void keepsLocalTimeAcrossDaylightSavingTime() {
+        // clocks in New York moved forward on March 14, 2021 and back on November 7, 2021
+        long start = at(2021, 3, 12, 9);
+        List<Long> found = occurrences("FREQ=DAILY", start, HOUR, start, at(2021, 3, 17, 0));
+        assertEquals(5, found.size());
+        for (long occurrence : found) { assertEquals(9, local(occurrence).getHour()); }
+        assertEquals(23 * HOUR, found.get(2) - found.get(1));
+
+        start = at(2021, 10, 25, 18);
+        found = occurrences("FREQ=WEEKLY", start, HOUR, start, at(2021, 11, 9, 0));
+        assertEquals(3, found.size());
+        for (long occurrence : found) { assertEquals(18, local(occurrence).getHour()); }
+        assertEquals(7 * 24 * HOUR + HOUR, found.get(2) - found.get(1));
+    }
+
+    @Test
+    public void eventOccurrencesKeepTheirDuration() {
+        Event event = new Event();
+        event.startTime = new Date(at(2021, 3, 13, 23));
+        event.endTime = new Date(at(2021, 3, 14, 1));
+        event.recurrence = "FREQ=DAILY;COUNT=2";
+        List<Event> found = event.occurrencesBetween(at(2021, 3, 13, 0), at(2021, 3, 16, 0));
+        assertEquals(2, found.size());
+        for (Event occurrence : found) { assertEquals(event.getDuration(), occurrence.getDuration()); }
+    }
+
+    @Test
+    public void decadesLongRulesStayCheap() {
+        long start = at(1980, 1, 7, 10);
+        Recurrence rule = Recurrence.parse("FREQ=WEEKLY;BYDAY=MO,WE,FR", TIME_ZONE);
+        long windowStart = at(2060, 6, 7, 0), windowEnd = at(2060, 6, 14, 0);
+        List<Long> found = rule.occurrencesBetween(start, HOUR, windowStart, windowEnd, Collections.emptySet(), TIME_ZONE);
+        assertEquals(3, found.size());
+        for (long occurrence : found) { assertEquals(10, local(occurrence).getHour()); }
+
+        // each lookup goes straight to the periods near the window instead of walking all 80
+        // years of them, so many lookups are still quick
+        long began = System.nanoTime();
+        for (int i = 0; i < 10000; i++) {
+            rule.occurrencesBetween(start, HOUR, windowStart, windowEnd, Collections.emptySet(), TIME_ZONE);
+        }
+        assertTrue((System.nanoTime() - began) / 1000000 < 5000);
+
+        // a window spanning decades only holds the occurrences within it
+        Recurrence yearly = Recurrence.parse("FREQ=YEARLY", TIME_ZONE);
+        assertEquals(40, yearly.occurrencesBetween(at(2000, 5, 1, 9), HOUR, at(2000, 1, 1, 0), at(2040, 1, 1, 0),
+                Collections.emptySet(), TIME_ZONE).size());
+    }
+}